@@ -0,0 +1,56 @@
+package manage.benchmark;
+
+import manage.control.DatabaseController;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the null disableConsent explanations of the identity providers. The identity providers are modified by
+ * the benchmark, so each invocation gets fresh copies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DisableConsentBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int size;
+
+    private SyntheticEntities syntheticEntities;
+
+    private List<MetaData> identityProviders;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        syntheticEntities = new SyntheticEntities();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        identityProviders = syntheticEntities.generate(EntityType.IDP, size);
+    }
+
+    @Benchmark
+    public List<MetaData> filterOutNullDisableConsentExplanations() {
+        DatabaseController.filterOutNullDisableConsentExplanations(identityProviders);
+        return identityProviders;
+    }
+}
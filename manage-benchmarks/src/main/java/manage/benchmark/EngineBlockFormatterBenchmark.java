@@ -0,0 +1,64 @@
+package manage.benchmark;
+
+import manage.format.EngineBlockFormatter;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats all the entities of one type for the EngineBlock push.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBlockFormatterBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int size;
+
+    private final EngineBlockFormatter formatter = new EngineBlockFormatter();
+
+    private List<MetaData> serviceProviders;
+    private List<MetaData> identityProviders;
+    private List<MetaData> relyingParties;
+
+    @Setup
+    public void setup() {
+        SyntheticEntities syntheticEntities = new SyntheticEntities();
+        serviceProviders = syntheticEntities.generate(EntityType.SP, size);
+        identityProviders = syntheticEntities.generate(EntityType.IDP, size);
+        relyingParties = syntheticEntities.generate(EntityType.RP, size);
+    }
+
+    @Benchmark
+    public void parseServiceProvider(Blackhole blackhole) {
+        serviceProviders.forEach(metaData -> blackhole.consume(formatter.parseServiceProvider(metaData)));
+    }
+
+    @Benchmark
+    public void parseIdentityProvider(Blackhole blackhole) {
+        identityProviders.forEach(metaData -> blackhole.consume(formatter.parseIdentityProvider(metaData)));
+    }
+
+    @Benchmark
+    public void parseOidcClient(Blackhole blackhole) {
+        relyingParties.forEach(metaData -> blackhole.consume(formatter.parseOidcClient(metaData)));
+    }
+}
@@ -0,0 +1,68 @@
+package manage.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import manage.conf.JSONObjectConverter;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts the data of all the entities of one type to the JSONObject the schema validates: the former text round
+ * trip through Jackson and JSONTokener against the structural conversion of MetaDataAutoConfiguration#validate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JSONObjectConverterBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int size;
+
+    @Param({"SP", "IDP", "RP"})
+    private EntityType entityType;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final JSONObjectConverter converter = new JSONObjectConverter(objectMapper);
+
+    private List<MetaData> entities;
+
+    @Setup
+    public void setup() {
+        entities = new SyntheticEntities().generate(entityType, size);
+    }
+
+    @Benchmark
+    public void textRoundTrip(Blackhole blackhole) throws JsonProcessingException {
+        for (MetaData metaData : entities) {
+            String json = objectMapper.writeValueAsString(metaData.getData());
+            blackhole.consume(new JSONObject(new JSONTokener(json)));
+        }
+    }
+
+    @Benchmark
+    public void structural(Blackhole blackhole) throws JsonProcessingException {
+        for (MetaData metaData : entities) {
+            blackhole.consume(converter.convert(metaData.getData()));
+        }
+    }
+}
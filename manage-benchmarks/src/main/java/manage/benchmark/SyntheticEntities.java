@@ -0,0 +1,71 @@
+package manage.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import manage.model.EntityType;
+import manage.model.MetaData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Generates any number of entities of one type from the seed data of the manage-server tests. The seed entities of
+ * the type are used round-robin as templates and every generated entity gets its own id and entityid.
+ */
+public class SyntheticEntities {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final List<MetaData> seed;
+
+    public SyntheticEntities() {
+        try (InputStream inputStream = SyntheticEntities.class.getResourceAsStream("/meta_data_seed.json")) {
+            this.seed = objectMapper.readValue(inputStream, new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<MetaData> generate(EntityType entityType, int size) {
+        List<byte[]> templates = seed.stream()
+                .filter(metaData -> metaData.getType().equals(entityType.getType()))
+                .map(this::serialize)
+                .collect(Collectors.toList());
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("No seed data for " + entityType.getType());
+        }
+        List<MetaData> entities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            //Every entity is a deep copy, so benchmarks that modify the entities do not interfere with each other
+            MetaData metaData = this.deserialize(templates.get(i % templates.size()));
+            Map<String, Object> data = metaData.getData();
+            data.put("entityid", String.format("https://benchmark.%s.%s.org", entityType.getType(), i));
+            entities.add(new MetaData(UUID.randomUUID().toString(), (long) i, metaData.getType(),
+                    metaData.getRevision(), data));
+        }
+        return entities;
+    }
+
+    private byte[] serialize(MetaData metaData) {
+        try {
+            return objectMapper.writeValueAsBytes(metaData);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MetaData deserialize(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, MetaData.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -237,7 +237,19 @@ export function logOut() {
 }
 
 export function push() {
-    return fetchJson("playground/push");
+    return fetchJson("playground/push?async=true").then(pollPushJob);
+}
+
+function pollPushJob(job) {
+    if (job.status === "FINISHED") {
+        return job.result;
+    }
+    if (job.status === "FAILED") {
+        return {status: job.status, error: job.error};
+    }
+    return new Promise(resolve => setTimeout(resolve, 1000))
+        .then(() => fetchJson(`playground/push/${job.id}`))
+        .then(pollPushJob);
 }
 
 export function pushPreview() {
@@ -68,7 +68,7 @@ export default class Navigation extends React.PureComponent {
         this.setState({loading: true});
         push().then(json => {
             this.setState({loading: false, pushResults: json.deltas});
-            const ok = json.status === "OK" || json.status === 200;
+            const ok = json.status === "OK" || json.status === "NOT_MODIFIED" || json.status === 200;
             setFlash(pushFlash(ok, this.props.currentUser), ok ? "info" : "error");
         });
     };
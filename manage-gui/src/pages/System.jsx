@@ -106,7 +106,7 @@ export default class System extends React.PureComponent {
         this.setState({loading: true});
         push().then(json => {
             this.setState({loading: false});
-            const ok = json.status === "OK" || json.status === 200;
+            const ok = json.status === "OK" || json.status === "NOT_MODIFIED" || json.status === 200;
             setFlash(pushFlash(ok, this.props.currentUser), ok ? "info" : "error");
         });
     };
@@ -383,11 +383,11 @@ export default class System extends React.PureComponent {
     renderStats = () => {
         const {statistics, statsSorted, statsSortedReverse} = this.state;
         const sortedStatistics = statistics.sort((a, b) => statsSorted === "name" ?
-            a.name.localeCompare(b.name) * (statsSortedReverse ? -1 : 1) : (a.count - b.count) * (statsSortedReverse ? -1 : 1));
-        const columns = ["name", "count"];
+            a.name.localeCompare(b.name) * (statsSortedReverse ? -1 : 1) : ((a[statsSorted] || 0) - (b[statsSorted] || 0)) * (statsSortedReverse ? -1 : 1));
+        const columns = ["name", "count", "storageSize", "indexSize"];
         return (
             <section className="stats">
-                <p>Overview of all collections and the size of the collection.</p>
+                <p>Overview of all collections with the estimated number of documents and the storage and index size in bytes.</p>
                 <table className="stats">
                     <thead>
                     <tr>{
@@ -404,6 +404,8 @@ export default class System extends React.PureComponent {
                     {sortedStatistics.map((statsEntry, i) => <tr key={i}>
                         <td>{statsEntry.name}</td>
                         <td>{statsEntry.count}</td>
+                        <td>{statsEntry.storageSize}</td>
+                        <td>{statsEntry.indexSize}</td>
                     </tr>)}
                     </tbody>
                 </table>
@@ -0,0 +1,78 @@
+package manage.conf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Converts the data of an entity to the org.json representation the schemas validate, without serializing the data
+ * to text and parsing it again. The result is the same as that of the text round trip: null becomes JSONObject.NULL
+ * and integers are narrowed the way JSONTokener parses them. Values without an exact counterpart - decimals, dates
+ * and other types Jackson serializes - are still converted with the ObjectMapper, one value at the time.
+ */
+public class JSONObjectConverter {
+
+    private final ObjectMapper objectMapper;
+
+    public JSONObjectConverter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public JSONObject convert(Map<?, ?> data) throws JsonProcessingException {
+        JSONObject jsonObject = new JSONObject();
+        for (Map.Entry<?, ?> entry : data.entrySet()) {
+            jsonObject.put(String.valueOf(entry.getKey()), this.value(entry.getValue()));
+        }
+        return jsonObject;
+    }
+
+    private JSONArray array(Iterable<?> values) throws JsonProcessingException {
+        JSONArray jsonArray = new JSONArray();
+        for (Object value : values) {
+            jsonArray.put(this.value(value));
+        }
+        return jsonArray;
+    }
+
+    private Object value(Object value) throws JsonProcessingException {
+        if (value == null) {
+            return JSONObject.NULL;
+        }
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Map) {
+            return this.convert((Map<?, ?>) value);
+        }
+        if (value instanceof Iterable) {
+            return this.array((Iterable<?>) value);
+        }
+        if (value instanceof Object[]) {
+            return this.array(Arrays.asList((Object[]) value));
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte ||
+                value instanceof BigInteger) {
+            return integer(value);
+        }
+        return new JSONTokener(objectMapper.writeValueAsString(value)).nextValue();
+    }
+
+    private static Object integer(Object value) {
+        BigInteger bigInteger = value instanceof BigInteger ? (BigInteger) value :
+                BigInteger.valueOf(((Number) value).longValue());
+        if (bigInteger.bitLength() <= 31) {
+            return bigInteger.intValue();
+        }
+        if (bigInteger.bitLength() <= 63) {
+            return bigInteger.longValue();
+        }
+        return bigInteger;
+    }
+
+}
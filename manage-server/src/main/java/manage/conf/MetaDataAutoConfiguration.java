@@ -55,6 +55,7 @@ public class MetaDataAutoConfiguration {
     private final List<Map<String, Object>> schemaRepresentations = new ArrayList<>();
     private final Map<String, List<IndexConfiguration>> indexConfigurations = new HashMap<>();
     private final ObjectMapper objectMapper;
+    private final JSONObjectConverter jsonObjectConverter;
 
     @Autowired
     public MetaDataAutoConfiguration(ObjectMapper objectMapper,
@@ -74,6 +75,7 @@ public class MetaDataAutoConfiguration {
                 new UUIDFormatValidator()
         ));
         this.objectMapper = objectMapper;
+        this.jsonObjectConverter = new JSONObjectConverter(objectMapper);
         this.templates = parseTemplates(metadataTemplatesPath);
         LOG.info("Finished loading {} metadata configurations", schemas.size());
     }
@@ -84,9 +86,7 @@ public class MetaDataAutoConfiguration {
             throw new IllegalArgumentException(String.format("No schema defined for %s", key));
         });
 
-        String json = objectMapper.writeValueAsString(data);
-        JSONObject jsonObject = new JSONObject(new JSONTokener(json));
-        schema.validate(jsonObject);
+        schema.validate(jsonObjectConverter.convert(data));
     }
 
     public Set<String> schemaNames() {
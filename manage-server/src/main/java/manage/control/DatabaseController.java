@@ -1,12 +1,22 @@
 package manage.control;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import manage.format.EngineBlockFormatter;
+import manage.format.PushWriter;
 import manage.model.EntityType;
 import manage.model.MetaData;
+import manage.model.Push;
 import manage.model.Scope;
 import manage.repository.MetaDataRepository;
+import manage.service.PushHash;
+import manage.service.PushSnapshotCache;
+import manage.service.ScopeCache;
 import manage.web.HttpHostProvider;
 import manage.web.PreemptiveAuthenticationHttpComponentsClientHttpRequestFactory;
+import manage.web.PushRequestCallback;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -14,62 +24,130 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
+import static manage.mongo.MongoChangelog.REVISION_POSTFIX;
 
 @Component
 @RestController
 @SuppressWarnings("unchecked")
 public class DatabaseController {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DatabaseController.class);
+
+    private static final int DIRTY_BATCH_SIZE = 500;
+
+    //The registered pushes that are kept, the last full push is always kept as it is the base of the delta pushes
+    private static final int MAX_PUSHES = 100;
+
+    private static final List<String> OIDC_PUSH_FIELDS = List.of(
+            "version", "type", "revision", "data.entityid", "data.state", "data.allowedall", "data.allowedEntities",
+            "data.allowedResourceServers", "data.metaDataFields");
+
+    //The formatted connections per entity type that are waiting to be consumed
+    private static final int BRANCH_QUEUE_SIZE = 1000;
+
+    private final ForkJoinPool formatPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    //The entity types are loaded in their own threads, which block while their connections are not yet consumed
+    private final ExecutorService branchPool = Executors.newCachedThreadPool();
+
     private final RestTemplate restTemplate;
     private final String pushUri;
+    private final String deltaPushUri;
+    private final Duration fullPushInterval;
+    private final boolean gzip;
 
     private final RestTemplate oidcRestTemplate;
     private final String oidcPushUri;
     private final boolean oidcEnabled;
+    private final boolean oidcGzip;
 
     private final boolean excludeEduGainImported;
     private final boolean excludeOidcRP;
 
     private final MetaDataRepository metaDataRepository;
 
+    private final PushSnapshotCache pushSnapshotCache;
+
+    private final ScopeCache scopeCache;
+
+    private final ObjectMapper objectMapper;
+
     private final Environment environment;
 
     @Autowired
     DatabaseController(MetaDataRepository metaDataRepository,
+                       PushSnapshotCache pushSnapshotCache,
+                       ScopeCache scopeCache,
                        @Value("${push.eb.url}") String pushUri,
                        @Value("${push.eb.user}") String user,
                        @Value("${push.eb.password}") String password,
                        @Value("${push.eb.exclude_edugain_imports}") boolean excludeEduGainImported,
                        @Value("${push.eb.exclude_oidc_rp}") boolean excludeOidcRP,
+                       @Value("${push.eb.delta_url}") String deltaPushUri,
+                       @Value("${push.eb.full_push_interval_minutes}") long fullPushIntervalMinutes,
+                       @Value("${push.eb.gzip}") boolean gzip,
                        @Value("${push.oidc.url}") String oidcPushUri,
                        @Value("${push.oidc.user}") String oidcUser,
                        @Value("${push.oidc.password}") String oidcPassword,
                        @Value("${push.oidc.enabled}") boolean oidcEnabled,
+                       @Value("${push.oidc.gzip}") boolean oidcGzip,
+                       ObjectMapper objectMapper,
                        Environment environment) throws MalformedURLException {
         this.metaDataRepository = metaDataRepository;
+        this.pushSnapshotCache = pushSnapshotCache;
+        this.scopeCache = scopeCache;
+        this.objectMapper = objectMapper;
         this.pushUri = pushUri;
+        this.deltaPushUri = deltaPushUri;
+        this.fullPushInterval = Duration.ofMinutes(fullPushIntervalMinutes);
+        this.gzip = gzip;
         this.restTemplate = new RestTemplate(getRequestFactory(user, password));
         this.excludeEduGainImported = excludeEduGainImported;
         this.excludeOidcRP = excludeOidcRP;
@@ -77,105 +155,500 @@ public class DatabaseController {
         this.oidcRestTemplate = new RestTemplate(getRequestFactory(oidcUser, oidcPassword));
         this.oidcPushUri = oidcPushUri;
         this.oidcEnabled = oidcEnabled;
+        this.oidcGzip = oidcGzip;
 
         this.environment = environment;
     }
 
     public ResponseEntity<Map> doPush() {
+        return this.doPush(false, phase -> {
+        });
+    }
+
+    /**
+     * The EngineBlock leg is skipped if the content hash of the push is equal to the hash of the last push, unless
+     * the push is forced. The phaseListener is notified when the EngineBlock ('eb') and the OIDC-NG ('oidc') leg of
+     * the push start.
+     */
+    public ResponseEntity<Map> doPush(boolean force, Consumer<String> phaseListener) {
         if (environment.acceptsProfiles(Profiles.of("dev"))) {
             return new ResponseEntity<>(Collections.singletonMap("status", 200), HttpStatus.OK);
         }
+        Instant pushStarted = Instant.now();
+        phaseListener.accept("eb");
 
-        Map<String, Map<String, Map<String, Object>>> json = this.pushPreview();
+        Map<String, Object> result = new HashMap<>();
+        Optional<Push> lastPush = force ? Optional.empty() : this.lastSuccessfulPush(false);
+        if (lastPush.isPresent() && lastPush.get().isFull() &&
+                this.pushHash().filter(hash -> hash.equals(lastPush.get().getHash())).isPresent()) {
+            LOG.info("Nothing has changed since the push of {}, skipping the EngineBlock push",
+                    lastPush.get().getCreated());
+            result.put("status", HttpStatus.NOT_MODIFIED);
+            result.put("since", lastPush.get().getCreated());
+            this.pushOidc(result, phaseListener);
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        }
 
-        ResponseEntity<String> response = this.restTemplate.postForEntity(pushUri, json, String.class);
+        //The connections are written one by one to the request body, the payload is never built as a whole
+        PushHash pushHash = new PushHash();
+        PushRequestCallback requestCallback = new PushRequestCallback(gzip, outputStream -> {
+            try (PushWriter pushWriter = new PushWriter(objectMapper, outputStream)) {
+                this.forEachConnection((id, snapshot) -> {
+                    pushWriter.write(id, snapshot.getConnection());
+                    pushHash.add(snapshot);
+                });
+                pushWriter.finish();
+            }
+        });
+        ResponseEntity<String> response = this.restTemplate.execute(pushUri, HttpMethod.POST, requestCallback,
+                this.restTemplate.responseEntityExtractor(String.class));
+        HttpStatus statusCode = response.getStatusCode();
+
+        result.put("status", statusCode);
+        result.put("response", response);
+        result.put("size", requestCallback.sizes());
+
+        this.pushOidc(result, phaseListener);
+        this.registerPush(statusCode, pushStarted, true, pushHash.value());
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    /**
+     * Only push the connections that have changed since the last successful push - full or delta - and the
+     * identifiers of the connections that have been deleted or excluded from the push since then. A full push is
+     * done if delta pushes are not configured or if the last full push is older than the configured interval.
+     */
+    public ResponseEntity<Map> doDeltaPush() {
+        return this.doDeltaPush(phase -> {
+        });
+    }
+
+    public ResponseEntity<Map> doDeltaPush(Consumer<String> phaseListener) {
+        if (environment.acceptsProfiles(Profiles.of("dev"))) {
+            return new ResponseEntity<>(Collections.singletonMap("status", 200), HttpStatus.OK);
+        }
+        Optional<Push> lastFullPush = this.lastSuccessfulPush(true);
+        if (!StringUtils.hasText(deltaPushUri) || !lastFullPush.isPresent() ||
+                lastFullPush.get().getCreated().isBefore(Instant.now().minus(fullPushInterval))) {
+            LOG.info("No delta push configured or last full push is too old, falling back to a full push");
+            return this.doPush(false, phaseListener);
+        }
+        Instant pushStarted = Instant.now();
+        phaseListener.accept("eb");
+        Instant since = this.lastSuccessfulPush(false).map(Push::getCreated).orElse(lastFullPush.get().getCreated());
+
+        Map<String, Object> json = this.deltaPushPreview(since);
+
+        PushRequestCallback requestCallback = this.jsonRequestCallback(this.restTemplate, gzip, json);
+        ResponseEntity<String> response = this.restTemplate.execute(deltaPushUri, HttpMethod.POST, requestCallback,
+                this.restTemplate.responseEntityExtractor(String.class));
         HttpStatus statusCode = response.getStatusCode();
 
         Map<String, Object> result = new HashMap<>();
         result.put("status", statusCode);
         result.put("response", response);
+        result.put("size", requestCallback.sizes());
+        result.put("delta", true);
+        result.put("since", since);
+        result.put("upserts", ((Map) json.get("connections")).size());
+        result.put("deletes", ((Collection) json.get("deleted")).size());
+
+        this.pushOidc(result, phaseListener);
+        this.registerPush(statusCode, pushStarted, false, null);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 
+    private void pushOidc(Map<String, Object> result, Consumer<String> phaseListener) {
         // Now push all oidc_rp metadata to OIDC proxy
         if (!environment.acceptsProfiles(Profiles.of("dev")) && oidcEnabled) {
-            List<MetaData> relyingParties = metaDataRepository.getMongoTemplate().findAll(MetaData.class, EntityType.RP.getType());
-            List<MetaData> resourceServers = metaDataRepository.getMongoTemplate().findAll(MetaData.class, EntityType.RS.getType());
-            List<Scope> scopes = metaDataRepository.getMongoTemplate().findAll(Scope.class);
-            Map<String, Scope> scopesMapped = scopes.stream().collect(toMap(Scope::getName, scope -> scope));
-            resourceServers.forEach(rs -> {
-                //Once we want to get rid of this hack, but for now backward compatibility
-                rs.setType(EntityType.RP.getType());
-                Map<String, Object> metaDataFields = rs.metaDataFields();
-                metaDataFields.put("isResourceServer", true);
-                List<String> scopeList = (List<String>) metaDataFields.get("scopes");
-                if (!CollectionUtils.isEmpty(scopeList)) {
-                    List<Scope> transformedScope = scopeList.stream()
-                            .map(scope -> scopesMapped.getOrDefault(scope, null))
-                            .filter(Objects::nonNull)
-                            .collect(toList());
-                    metaDataFields.put("scopes", transformedScope);
+            phaseListener.accept("oidc");
+            Map<String, Scope> scopesByName = scopeCache.scopesByName();
+            ObjectMapper restObjectMapper = this.restObjectMapper(this.oidcRestTemplate);
+            //The relying parties and resource servers are written one by one to the request body
+            PushRequestCallback requestCallback = new PushRequestCallback(oidcGzip, outputStream -> {
+                try (JsonGenerator generator = restObjectMapper.createGenerator(outputStream, JsonEncoding.UTF8)) {
+                    //A failure halfway must not close the array, a partial array would be taken for all the entities
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                    generator.writeStartArray();
+                    this.forEachOidcEntity(EntityType.RP, rp -> {
+                        //Once we want to get rid of this cleanup, but for now backward compatibility
+                        Map<String, Object> metaDataFields = rp.metaDataFields();
+                        metaDataFields.put("isResourceServer", false);
+                        metaDataFields.remove("scopes");
+                        this.writeObject(generator, rp);
+                    });
+                    this.forEachOidcEntity(EntityType.RS, rs -> {
+                        //Once we want to get rid of this hack, but for now backward compatibility
+                        rs.setType(EntityType.RP.getType());
+                        Map<String, Object> metaDataFields = rs.metaDataFields();
+                        metaDataFields.put("isResourceServer", true);
+                        List<String> scopeList = (List<String>) metaDataFields.get("scopes");
+                        if (!CollectionUtils.isEmpty(scopeList)) {
+                            List<Scope> transformedScope = scopeList.stream()
+                                    .map(scopesByName::get)
+                                    .filter(Objects::nonNull)
+                                    .collect(toList());
+                            metaDataFields.put("scopes", transformedScope);
+                        }
+                        this.writeObject(generator, rs);
+                    });
+                    generator.writeEndArray();
                 }
             });
-            relyingParties.forEach(rp -> {
-                //Once we want to get rid of this cleanup, but for now backward compatibility
-                Map<String, Object> metaDataFields = rp.metaDataFields();
-                metaDataFields.put("isResourceServer", false);
-                metaDataFields.remove("scopes");
-            });
-            relyingParties.addAll(resourceServers);
-            List<MetaData> filteredEntities = relyingParties.stream()
-                    .filter(metaData -> !excludeFromPush(metaData.metaDataFields()))
-                    .collect(toList());
-            this.oidcRestTemplate.postForEntity(oidcPushUri, filteredEntities, Void.class);
+            ResponseEntity<Void> response = this.oidcRestTemplate.execute(oidcPushUri, HttpMethod.POST, requestCallback,
+                    this.oidcRestTemplate.responseEntityExtractor(Void.class));
             result.put("oidc", true);
+            result.put("oidcStatus", response.getStatusCode());
+            result.put("oidcSize", requestCallback.sizes());
         }
-        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    /**
+     * Streams the entities that are not excluded from the push with only the fields OIDC-NG needs.
+     */
+    private void forEachOidcEntity(EntityType entityType, Consumer<MetaData> consumer) {
+        Query query = Query.query(Criteria.where("data.metaDataFields.coin:exclude_from_push").nin(true, "1"));
+        OIDC_PUSH_FIELDS.forEach(field -> query.fields().include(field));
+        try (CloseableIterator<MetaData> iterator = metaDataRepository.getMongoTemplate()
+                .stream(query, MetaData.class, entityType.getType())) {
+            iterator.forEachRemaining(consumer);
+        }
+    }
+
+    private void writeObject(JsonGenerator generator, Object object) {
+        try {
+            generator.writeObject(object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PushRequestCallback jsonRequestCallback(RestTemplate restTemplate, boolean gzip, Object body) {
+        ObjectMapper restObjectMapper = this.restObjectMapper(restTemplate);
+        return new PushRequestCallback(gzip, outputStream -> restObjectMapper.writeValue(outputStream, body));
+    }
+
+    private ObjectMapper restObjectMapper(RestTemplate restTemplate) {
+        //Serialize exactly like the RestTemplate would do for a non-compressed request
+        return restTemplate.getMessageConverters().stream()
+                .filter(converter -> converter instanceof MappingJackson2HttpMessageConverter)
+                .map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+                .findFirst()
+                .orElse(objectMapper);
     }
 
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/client/playground/pushPreview")
     public Map<String, Map<String, Map<String, Object>>> pushPreview() {
-        EngineBlockFormatter formatter = new EngineBlockFormatter();
+        Map<String, Map<String, Object>> connections = new HashMap<>();
+        this.forEachConnection((id, snapshot) -> connections.put(id, this.readConnection(snapshot.getConnection())));
 
-        List<MetaData> serviceProviders = metaDataRepository.getMongoTemplate().findAll(MetaData.class, "saml20_sp");
-        Stream<MetaData> metaDataStream = excludeEduGainImported ?
-                serviceProviders.stream()
-                        .filter(metaData -> {
-                            Map metaDataFields = metaData.metaDataFields();
-                            boolean importedFromEdugain = Boolean.TRUE.equals(metaDataFields.get("coin:imported_from_edugain"));
-                            boolean pushEnabled = Boolean.TRUE.equals(metaDataFields.get("coin:push_enabled"));
-                            return !importedFromEdugain || pushEnabled;
-                        }) : serviceProviders.stream();
+        Map<String, Map<String, Map<String, Object>>> results = new HashMap<>();
+        results.put("connections", connections);
 
-        Map<String, Map<String, Object>> serviceProvidersToPush = metaDataStream
-                .filter(metaData -> !excludeFromPush(metaData.metaDataFields()))
-                .collect(toMap(MetaData::getId, formatter::parseServiceProvider));
+        return results;
+    }
 
-        List<MetaData> identityProviders = metaDataRepository.getMongoTemplate().findAll(MetaData.class, "saml20_idp");
+    /**
+     * The content hash over all the connections of the EngineBlock push as maintained by the {@link PushSnapshotCache},
+     * verified with only the identifiers and versions of the entities. Nothing is loaded in full or formatted. Empty if
+     * an entity is new, changed, unversioned or deleted since it was last formatted, the push is then not skipped.
+     */
+    Optional<String> pushHash() {
+        Query versionQuery = new Query();
+        versionQuery.fields().include("_id").include("version");
+        int size = 0;
+        for (EntityType entityType : this.pushedEntityTypes()) {
+            try (CloseableIterator<Map> iterator = metaDataRepository.getMongoTemplate()
+                    .stream(versionQuery, Map.class, entityType.getType())) {
+                while (iterator.hasNext()) {
+                    Map versionMap = iterator.next();
+                    Object version = versionMap.get("version");
+                    if (version == null || !pushSnapshotCache.get((String) versionMap.get("_id"),
+                            ((Number) version).longValue()).isPresent()) {
+                        return Optional.empty();
+                    }
+                    size++;
+                }
+            }
+        }
+        return pushSnapshotCache.hash(size);
+    }
 
-        //Explicit only filter out 'null' objects in the disableConsent as generically filtering out 'nulls' can break things
-        filterOutNullDisableConsentExplanations(identityProviders);
+    private List<EntityType> pushedEntityTypes() {
+        return excludeOidcRP ? List.of(EntityType.SP, EntityType.IDP) :
+                List.of(EntityType.SP, EntityType.RP, EntityType.IDP);
+    }
 
-        Map<String, Map<String, Object>> identityProvidersToPush = identityProviders.stream()
-                .filter(metaData -> !excludeFromPush(metaData.metaDataFields()))
-                .collect(toMap(MetaData::getId, formatter::parseIdentityProvider));
+    /**
+     * Hands over all the serialized connections that are part of the EngineBlock push one by one to the consumer.
+     * Only new and changed entities are read in full from the database and formatted, all others are taken from the
+     * {@link PushSnapshotCache}. The different entity types are loaded and formatted concurrently, each type hands its
+     * connections over through a bounded queue, so the payload is never collected before it is consumed.
+     */
+    private void forEachConnection(BiConsumer<String, PushSnapshotCache.Snapshot> consumer) {
+        EngineBlockFormatter formatter = new EngineBlockFormatter();
+        Set<String> identifiers = ConcurrentHashMap.newKeySet();
+        List<Branch> branches = new ArrayList<>();
 
+        branches.add(this.connections(EntityType.SP, identifiers, metaData ->
+                includeServiceProviderInPush(metaData) ? formatter.parseServiceProvider(metaData) : null));
         if (!excludeOidcRP) {
-            List<MetaData> relyingParties = metaDataRepository.getMongoTemplate().findAll(MetaData.class, EntityType.RP.getType());
-            Map<String, Map<String, Object>> oidcClientsToPush = relyingParties.stream()
-                    .filter(metaData -> !excludeFromPush(metaData.metaDataFields()))
-                    .collect(toMap(MetaData::getId, formatter::parseOidcClient));
+            branches.add(this.connections(EntityType.RP, identifiers, metaData ->
+                    excludeFromPush(metaData.metaDataFields()) ? null : formatter.parseOidcClient(metaData)));
+        }
+        branches.add(this.connections(EntityType.IDP, identifiers, metaData -> {
+            if (excludeFromPush(metaData.metaDataFields())) {
+                return null;
+            }
+            //Explicit only filter out 'null' objects in the disableConsent as generically filtering out 'nulls' can break things
+            filterOutNullDisableConsentExplanation(metaData);
+            return formatter.parseIdentityProvider(metaData);
+        }));
+        try {
+            //The consumer is not thread-safe and the order of the entity types in the push is fixed
+            branches.forEach(branch -> branch.forEach(consumer));
+        } finally {
+            //Stops the branches that are still running if the consumer has failed
+            branches.forEach(Branch::cancel);
+        }
+        //Remove the snapshots of deleted entities
+        pushSnapshotCache.retainAll(identifiers);
+    }
 
-            serviceProvidersToPush.putAll(oidcClientsToPush);
+    private Branch connections(EntityType entityType,
+                               Set<String> identifiers,
+                               Function<MetaData, Map<String, Object>> formatter) {
+        Branch branch = new Branch();
+        branch.future = CompletableFuture.runAsync(() -> {
+            try {
+                MongoTemplate mongoTemplate = metaDataRepository.getMongoTemplate();
+                String collectionName = entityType.getType();
+
+                Query versionQuery = new Query();
+                versionQuery.fields().include("_id").include("version");
+                List<String> dirtyIdentifiers = new ArrayList<>();
+                try (CloseableIterator<Map> iterator = mongoTemplate.stream(versionQuery, Map.class, collectionName)) {
+                    iterator.forEachRemaining(versionMap -> {
+                        String id = (String) versionMap.get("_id");
+                        Object version = versionMap.get("version");
+                        identifiers.add(id);
+                        Optional<PushSnapshotCache.Snapshot> snapshot =
+                                pushSnapshotCache.get(id, version == null ? null : ((Number) version).longValue());
+                        if (snapshot.isPresent()) {
+                            if (!snapshot.get().isExcludedFromPush()) {
+                                branch.put(Map.entry(id, snapshot.get()));
+                            }
+                        } else {
+                            dirtyIdentifiers.add(id);
+                        }
+                    });
+                }
+                for (int i = 0; i < dirtyIdentifiers.size(); i += DIRTY_BATCH_SIZE) {
+                    List<String> batch =
+                            dirtyIdentifiers.subList(i, Math.min(i + DIRTY_BATCH_SIZE, dirtyIdentifiers.size()));
+                    List<MetaData> metaDataList = mongoTemplate.find(Query.query(Criteria.where("_id").in(batch)),
+                            MetaData.class, collectionName);
+                    //The entities of a batch are formatted in parallel in the formatPool
+                    List<Map.Entry<String, PushSnapshotCache.Snapshot>> connections = formatPool.submit(() ->
+                            metaDataList.parallelStream()
+                                    .map(metaData -> {
+                                        Map<String, Object> connection = formatter.apply(metaData);
+                                        String json = connection == null ? null : this.writeConnection(connection);
+                                        PushSnapshotCache.Snapshot snapshot =
+                                                pushSnapshotCache.put(metaData.getId(), metaData.getVersion(), json);
+                                        return json == null ? null : Map.entry(metaData.getId(), snapshot);
+                                    })
+                                    .filter(Objects::nonNull)
+                                    .collect(toList())).join();
+                    connections.forEach(branch::put);
+                }
+            } finally {
+                branch.end();
+            }
+        }, branchPool);
+        return branch;
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    /**
+     * The connections of one entity type, handed over by the thread that loads and formats them to the consumer of the
+     * push. The producer blocks while the queue is full and stops once the branch is cancelled.
+     */
+    private class Branch {
+
+        private final Map.Entry<String, PushSnapshotCache.Snapshot> end =
+                Map.entry("", new PushSnapshotCache.Snapshot(null, null, null));
+        private final BlockingQueue<Map.Entry<String, PushSnapshotCache.Snapshot>> queue =
+                new ArrayBlockingQueue<>(BRANCH_QUEUE_SIZE);
+        private volatile boolean cancelled;
+        private CompletableFuture<Void> future;
+
+        private void put(Map.Entry<String, PushSnapshotCache.Snapshot> connection) {
+            try {
+                while (!queue.offer(connection, 1, TimeUnit.SECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
         }
 
-        serviceProvidersToPush.putAll(identityProvidersToPush);
+        private void end() {
+            if (!cancelled) {
+                this.put(end);
+            }
+        }
 
-        Map<String, Map<String, Map<String, Object>>> results = new HashMap<>();
-        results.put("connections", serviceProvidersToPush);
+        private void forEach(BiConsumer<String, PushSnapshotCache.Snapshot> consumer) {
+            try {
+                for (Map.Entry<String, PushSnapshotCache.Snapshot> connection = queue.take(); connection != end;
+                     connection = queue.take()) {
+                    consumer.accept(connection.getKey(), connection.getValue());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            //Rethrows the failure of the producer
+            join(future);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        branchPool.shutdown();
+        formatPool.shutdown();
+    }
+
+    private String writeConnection(Map<String, Object> connection) {
+        try {
+            return objectMapper.writeValueAsString(connection);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> readConnection(String connection) {
+        try {
+            return objectMapper.readValue(connection, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The connections that have been created or updated since the given instant and the identifiers of the
+     * connections that have been deleted - or are now excluded from the push - since then.
+     */
+    public Map<String, Object> deltaPushPreview(Instant since) {
+        EngineBlockFormatter formatter = new EngineBlockFormatter();
+        MongoTemplate mongoTemplate = metaDataRepository.getMongoTemplate();
+        Query changedQuery = Query.query(Criteria.where("revision.created").gt(since));
+
+        Map<String, Map<String, Object>> connections = new HashMap<>();
+        Set<String> deleted = new HashSet<>();
+
+        mongoTemplate.find(changedQuery, MetaData.class, EntityType.SP.getType()).forEach(metaData -> {
+            if (includeServiceProviderInPush(metaData)) {
+                connections.put(metaData.getId(), formatter.parseServiceProvider(metaData));
+            } else {
+                deleted.add(metaData.getId());
+            }
+        });
+
+        List<MetaData> identityProviders = mongoTemplate.find(changedQuery, MetaData.class, EntityType.IDP.getType());
+        filterOutNullDisableConsentExplanations(identityProviders);
+        identityProviders.forEach(metaData -> {
+            if (!excludeFromPush(metaData.metaDataFields())) {
+                connections.put(metaData.getId(), formatter.parseIdentityProvider(metaData));
+            } else {
+                deleted.add(metaData.getId());
+            }
+        });
 
+        List<EntityType> pushedTypes = new ArrayList<>(List.of(EntityType.SP, EntityType.IDP));
+        if (!excludeOidcRP) {
+            pushedTypes.add(EntityType.RP);
+            mongoTemplate.find(changedQuery, MetaData.class, EntityType.RP.getType()).forEach(metaData -> {
+                if (!excludeFromPush(metaData.metaDataFields())) {
+                    connections.put(metaData.getId(), formatter.parseOidcClient(metaData));
+                } else {
+                    deleted.add(metaData.getId());
+                }
+            });
+        }
+        //A deleted entity leaves a terminated revision behind with a reference to the original identifier
+        Query terminatedQuery = Query.query(Criteria.where("revision.terminated").gt(since));
+        terminatedQuery.fields().include("revision.parentId");
+        pushedTypes.forEach(entityType -> mongoTemplate
+                .find(terminatedQuery, MetaData.class, entityType.getType().concat(REVISION_POSTFIX))
+                .forEach(revision -> deleted.add(revision.getRevision().getParentId())));
+        //Restored entities are pushed again
+        deleted.removeAll(connections.keySet());
+
+        Map<String, Object> results = new HashMap<>();
+        results.put("connections", connections);
+        results.put("deleted", deleted);
         return results;
     }
 
+    private Optional<Push> lastSuccessfulPush(boolean fullPushOnly) {
+        Query query = new Query().with(Sort.by(Sort.Order.desc("created")));
+        if (fullPushOnly) {
+            query.addCriteria(Criteria.where("full").is(true));
+        }
+        return Optional.ofNullable(metaDataRepository.getMongoTemplate().findOne(query, Push.class));
+    }
+
+    private void registerPush(HttpStatus statusCode, Instant pushStarted, boolean full, String hash) {
+        if (statusCode.is2xxSuccessful()) {
+            metaDataRepository.getMongoTemplate()
+                    .insert(new Push(UUID.randomUUID().toString(), pushStarted, "system", full, hash));
+            this.prunePushes();
+        }
+    }
+
+    private void prunePushes() {
+        MongoTemplate mongoTemplate = metaDataRepository.getMongoTemplate();
+        Query oldestKeptQuery = new Query().with(Sort.by(Sort.Order.desc("created"))).skip(MAX_PUSHES - 1);
+        Push oldestKept = mongoTemplate.findOne(oldestKeptQuery, Push.class);
+        if (oldestKept == null) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("created").lt(oldestKept.getCreated()));
+        this.lastSuccessfulPush(true).ifPresent(push -> query.addCriteria(Criteria.where("_id").ne(push.getId())));
+        mongoTemplate.remove(query, Push.class);
+    }
+
+    private boolean includeServiceProviderInPush(MetaData metaData) {
+        Map metaDataFields = metaData.metaDataFields();
+        if (excludeEduGainImported) {
+            boolean importedFromEdugain = Boolean.TRUE.equals(metaDataFields.get("coin:imported_from_edugain"));
+            boolean pushEnabled = Boolean.TRUE.equals(metaDataFields.get("coin:push_enabled"));
+            if (importedFromEdugain && !pushEnabled) {
+                return false;
+            }
+        }
+        return !excludeFromPush(metaDataFields);
+    }
+
     private boolean excludeFromPush(Map metaDataFields) {
         Object excludeFromPush = metaDataFields.getOrDefault("coin:exclude_from_push", false);
         if (excludeFromPush instanceof String) {
@@ -184,20 +657,22 @@ public class DatabaseController {
         return (boolean) excludeFromPush;
     }
 
+    public static void filterOutNullDisableConsentExplanations(List<MetaData> identityProviders) {
+        identityProviders.forEach(DatabaseController::filterOutNullDisableConsentExplanation);
+    }
+
     @SuppressWarnings("unchecked")
-    public void filterOutNullDisableConsentExplanations(List<MetaData> identityProviders) {
-        identityProviders.forEach(idp -> {
-            Object disableConsentData = idp.getData().get("disableConsent");
-            if (disableConsentData instanceof List) {
-                List disableConsent = (List) disableConsentData;
-                disableConsent.forEach(disableConsentEntry -> {
-                    if (disableConsentEntry instanceof Map) {
-                        Map<String, Object> disableConsentMap = (Map) disableConsentEntry;
-                        disableConsentMap.entrySet().removeIf(entry -> entry.getValue() == null);
-                    }
-                });
-            }
-        });
+    private static void filterOutNullDisableConsentExplanation(MetaData idp) {
+        Object disableConsentData = idp.getData().get("disableConsent");
+        if (disableConsentData instanceof List) {
+            List disableConsent = (List) disableConsentData;
+            disableConsent.forEach(disableConsentEntry -> {
+                if (disableConsentEntry instanceof Map) {
+                    Map<String, Object> disableConsentMap = (Map) disableConsentEntry;
+                    disableConsentMap.entrySet().removeIf(entry -> entry.getValue() == null);
+                }
+            });
+        }
     }
 
     private ClientHttpRequestFactory getRequestFactory(String user, String password) throws MalformedURLException {
@@ -211,6 +686,10 @@ public class DatabaseController {
         optionalHttpHost.ifPresent(httpHost -> httpClientBuilder.setRoutePlanner(new DefaultProxyRoutePlanner(httpHost)));
 
         CloseableHttpClient httpClient = httpClientBuilder.build();
-        return new PreemptiveAuthenticationHttpComponentsClientHttpRequestFactory(httpClient, pushUri);
+        PreemptiveAuthenticationHttpComponentsClientHttpRequestFactory requestFactory =
+                new PreemptiveAuthenticationHttpComponentsClientHttpRequestFactory(httpClient, pushUri);
+        //Stream the request body instead of buffering the - possibly very large - payload in memory
+        requestFactory.setBufferRequestBody(false);
+        return requestFactory;
     }
 }
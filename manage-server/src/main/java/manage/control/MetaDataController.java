@@ -1,19 +1,26 @@
 package manage.control;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import manage.api.APIUser;
 import manage.conf.MetaDataAutoConfiguration;
+import manage.format.NdJsonWriter;
 import manage.model.*;
+import manage.repository.Keyset;
 import manage.repository.MetaDataRepository;
+import manage.repository.Page;
 import manage.service.ExporterService;
 import manage.service.ImporterService;
 import manage.service.MetaDataService;
+import manage.service.StatsService;
 import manage.shibboleth.FederatedUser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,6 +29,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
@@ -30,6 +38,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static manage.api.Scope.TEST;
 import static manage.mongo.MongoChangelog.CHANGE_REQUEST_POSTFIX;
@@ -51,17 +60,29 @@ public class MetaDataController {
 
     private final ImporterService importerService;
 
+    private final ObjectMapper objectMapper;
+
+    private final StatsService statsService;
+
+    private final int maxPageSize;
+
     public MetaDataController(MetaDataRepository metaDataRepository,
                               MetaDataAutoConfiguration metaDataAutoConfiguration,
                               ExporterService exporterService,
                               ImporterService importerService,
-                              MetaDataService metaDataService) {
+                              MetaDataService metaDataService,
+                              ObjectMapper objectMapper,
+                              StatsService statsService,
+                              @Value("${search.max_page_size}") int maxPageSize) {
 
         this.metaDataRepository = metaDataRepository;
         this.metaDataAutoConfiguration = metaDataAutoConfiguration;
         this.exporterService = exporterService;
         this.importerService = importerService;
         this.metaDataService = metaDataService;
+        this.objectMapper = objectMapper;
+        this.statsService = statsService;
+        this.maxPageSize = maxPageSize;
 
     }
 
@@ -108,7 +129,7 @@ public class MetaDataController {
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/client/metadata/stats")
     public List<StatsEntry> stats() {
-        return metaDataRepository.stats();
+        return statsService.stats();
     }
 
     @PreAuthorize("hasRole('WRITE')")
@@ -274,8 +295,9 @@ public class MetaDataController {
     }
 
     @GetMapping("/client/change-requests/all")
-    public List<MetaDataChangeRequest> allChangeRequests() {
-        return metaDataRepository.allChangeRequests();
+    public ResponseEntity<List<MetaDataChangeRequest>> allChangeRequests(PageQuery pageQuery) {
+        return page(metaDataRepository.allChangeRequests(Keyset.of(Keyset.SortKey.CREATED, pageQuery.getPageSize(),
+                pageQuery.getPageToken(), maxPageSize)));
     }
 
     @GetMapping("client/change-requests/count")
@@ -348,10 +370,11 @@ public class MetaDataController {
 
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/client/revisions/{type}/{parentId}")
-    public List<MetaData> revisions(@PathVariable("type") String type,
-                                    @PathVariable("parentId") String parentId) {
+    public ResponseEntity<List<MetaData>> revisions(@PathVariable("type") String type,
+                                                    @PathVariable("parentId") String parentId,
+                                                    PageQuery pageQuery) {
 
-        return metaDataRepository.revisions(type.concat(REVISION_POSTFIX), parentId);
+        return page(metaDataRepository.revisions(type.concat(REVISION_POSTFIX), parentId, keyset(pageQuery)));
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -364,8 +387,10 @@ public class MetaDataController {
 
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/client/whiteListing/{type}")
-    public List<Map> whiteListing(@PathVariable("type") String type, @RequestParam(value = "state") String state) {
-        return metaDataRepository.whiteListing(type, state);
+    public ResponseEntity<List<Map>> whiteListing(@PathVariable("type") String type,
+                                                  @RequestParam(value = "state") String state,
+                                                  PageQuery pageQuery) {
+        return page(metaDataRepository.whiteListing(type, state, keyset(pageQuery)));
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -382,8 +407,10 @@ public class MetaDataController {
 
     @PreAuthorize("hasAnyRole('USER', 'READ')")
     @GetMapping({"/client/allowedEntities/{type}/{id}", "/internal/allowedEntities/{type}/{id}"})
-    public List<Map> allowedEntities(@PathVariable("type") String type, @PathVariable("id") String id) {
-        return metaDataRepository.allowedEntities(id, EntityType.fromType(type));
+    public ResponseEntity<List<Map>> allowedEntities(@PathVariable("type") String type,
+                                                     @PathVariable("id") String id,
+                                                     PageQuery pageQuery) {
+        return page(metaDataRepository.allowedEntities(id, EntityType.fromType(type), keyset(pageQuery)));
     }
 
 
@@ -396,19 +423,60 @@ public class MetaDataController {
 
     @PreAuthorize("hasAnyRole('USER', 'READ')")
     @PostMapping({"/client/search/{type}", "/internal/search/{type}"})
-    public List<Map> searchEntities(@PathVariable("type") String type,
-                                    @RequestBody Map<String, Object> properties,
-                                    @RequestParam(required = false, defaultValue = "false") boolean nested) {
+    public ResponseEntity<List<Map>> searchEntities(@PathVariable("type") String type,
+                                                    @RequestBody Map<String, Object> properties,
+                                                    @RequestParam(required = false, defaultValue = "false") boolean nested,
+                                                    PageQuery pageQuery) {
 
-        return metaDataService.searchEntityByType(type, properties, nested);
+        return page(metaDataService.searchEntityByType(type, properties, nested, keyset(pageQuery)));
     }
 
     @PreAuthorize("hasAnyRole('USER', 'READ')")
     @GetMapping({"/client/rawSearch/{type}", "/internal/rawSearch/{type}"})
-    public List<MetaData> rawSearch(@PathVariable("type") String type, @RequestParam("query") String query)
+    public ResponseEntity<List<MetaData>> rawSearch(@PathVariable("type") String type,
+                                                    @RequestParam("query") String query,
+                                                    PageQuery pageQuery)
+            throws UnsupportedEncodingException {
+
+        return page(metaDataService.retrieveRawSearch(type, query, keyset(pageQuery)));
+    }
+
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @PostMapping(value = "/internal/search/{type}/stream", produces = NdJsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamSearchEntities(@PathVariable("type") String type,
+                                                                      @RequestBody Map<String, Object> properties,
+                                                                      @RequestParam(required = false, defaultValue = "false") boolean nested) {
+        return ndJson(metaDataService.streamEntityByType(type, properties, nested));
+    }
+
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @GetMapping(value = "/internal/rawSearch/{type}/stream", produces = NdJsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamRawSearch(@PathVariable("type") String type,
+                                                                 @RequestParam("query") String query)
             throws UnsupportedEncodingException {
+        return ndJson(metaDataService.streamRawSearch(type, query));
+    }
+
+    private Keyset keyset(PageQuery pageQuery) {
+        return Keyset.of(pageQuery.getSort(), pageQuery.getPageSize(), pageQuery.getPageToken(), maxPageSize);
+    }
+
+    private <T> ResponseEntity<List<T>> page(Page<T> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.getNextPageToken() != null) {
+            builder.header(Page.NEXT_PAGE_TOKEN, page.getNextPageToken());
+        }
+        return builder.body(page.getResults());
+    }
 
-        return metaDataService.retrieveRawSearch(type, query);
+    private ResponseEntity<StreamingResponseBody> ndJson(Stream<?> documents) {
+        //The cursor is already opened, so invalid queries fail before the response is committed
+        StreamingResponseBody body = outputStream -> {
+            try (documents; NdJsonWriter ndJsonWriter = new NdJsonWriter(objectMapper, outputStream)) {
+                ndJsonWriter.writeAll(documents.iterator());
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NdJsonWriter.MEDIA_TYPE)).body(body);
     }
 
     @PreAuthorize("hasAnyRole('USER', 'READ')")
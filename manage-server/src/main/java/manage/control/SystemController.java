@@ -3,32 +3,48 @@ package manage.control;
 import manage.api.APIUser;
 import manage.conf.Features;
 import manage.exception.EndpointNotAllowed;
+import manage.exception.ResourceNotFoundException;
+import manage.hook.CompositeMetaDataHook;
 import manage.hook.EntityIdReconcilerHook;
 import manage.model.EntityType;
+import manage.model.HookTiming;
+import manage.model.IndexAdvice;
+import manage.model.IndexDrift;
 import manage.model.MetaData;
 import manage.model.OrphanMetaData;
+import manage.model.PropagationJob;
+import manage.model.PushJob;
+import manage.mongo.IndexAdvisor;
+import manage.mongo.IndexReconciler;
 import manage.repository.MetaDataRepository;
+import manage.service.PushJobService;
+import manage.service.ReferencePropagationService;
 import manage.shibboleth.FederatedUser;
 import manage.validations.MetaDataValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.BasicQuery;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -44,31 +60,72 @@ public class SystemController {
 
     private final MetaDataRepository metaDataRepository;
     private final MetaDataValidator metaDataValidator;
-    private final DatabaseController databaseController;
+    private final PushJobService pushJobService;
+    private final IndexReconciler indexReconciler;
+    private final ObjectProvider<IndexAdvisor> indexAdvisor;
+    private final ReferencePropagationService referencePropagationService;
+    private final CompositeMetaDataHook compositeMetaDataHook;
 
     @Autowired
     public SystemController(MetaDataRepository metaDataRepository,
                             MetaDataValidator metaDataValidator,
-                            DatabaseController databaseController) {
+                            PushJobService pushJobService,
+                            IndexReconciler indexReconciler,
+                            ObjectProvider<IndexAdvisor> indexAdvisor,
+                            ReferencePropagationService referencePropagationService,
+                            CompositeMetaDataHook compositeMetaDataHook) {
         this.metaDataRepository = metaDataRepository;
         this.metaDataValidator = metaDataValidator;
-        this.databaseController = databaseController;
+        this.pushJobService = pushJobService;
+        this.indexReconciler = indexReconciler;
+        this.indexAdvisor = indexAdvisor;
+        this.referencePropagationService = referencePropagationService;
+        this.compositeMetaDataHook = compositeMetaDataHook;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/client/playground/push")
-    public ResponseEntity<Map> push(FederatedUser federatedUser) {
+    public ResponseEntity<Object> push(FederatedUser federatedUser,
+                                       @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+                                       @RequestParam(value = "force", required = false, defaultValue = "false") boolean force) {
         if (!federatedUser.featureAllowed(Features.PUSH)) {
             throw new EndpointNotAllowed();
         }
-        return databaseController.doPush();
+        return this.doPush(false, force, async, federatedUser.getUid());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/client/playground/push/{id}")
+    public PushJob pushJob(@PathVariable("id") String id) {
+        return this.findPushJob(id);
     }
 
     @PreAuthorize("hasRole('PUSH')")
     @GetMapping("/internal/push")
-    public ResponseEntity<Map> pushInternal(APIUser apiUser) {
-        LOG.info("Push initiated by {}", apiUser.getName());
-        return databaseController.doPush();
+    public ResponseEntity<Object> pushInternal(APIUser apiUser,
+                                               @RequestParam(value = "delta", required = false, defaultValue = "false") boolean delta,
+                                               @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+                                               @RequestParam(value = "force", required = false, defaultValue = "false") boolean force) {
+        LOG.info("{} push initiated by {}", delta ? "Delta" : "Full", apiUser.getName());
+        return this.doPush(delta, force, async, apiUser.getName());
+    }
+
+    @PreAuthorize("hasRole('PUSH')")
+    @GetMapping("/internal/push/{id}")
+    public PushJob pushJobInternal(@PathVariable("id") String id) {
+        return this.findPushJob(id);
+    }
+
+    private ResponseEntity<Object> doPush(boolean delta, boolean force, boolean async, String requestedBy) {
+        if (async) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(pushJobService.submit(delta, force, requestedBy));
+        }
+        return ResponseEntity.ok(pushJobService.submitAndWait(delta, force, requestedBy));
+    }
+
+    private PushJob findPushJob(String id) {
+        return pushJobService.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(String.format("Push job %s not found", id)));
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -80,6 +137,50 @@ public class SystemController {
         return metaDataValidator.validateMigration();
     }
 
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @GetMapping({"/client/playground/indexes", "/internal/playground/indexes"})
+    public List<IndexDrift> indexes() {
+        return indexReconciler.drift();
+    }
+
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @GetMapping({"/client/playground/indexAdvice", "/internal/playground/indexAdvice"})
+    public List<IndexAdvice> indexAdvice() {
+        IndexAdvisor advisor = indexAdvisor.getIfAvailable();
+        return advisor == null ? Collections.emptyList() : advisor.advise();
+    }
+
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @GetMapping({"/client/playground/hookTimings", "/internal/playground/hookTimings"})
+    public List<HookTiming> hookTimings() {
+        return compositeMetaDataHook.timings();
+    }
+
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @GetMapping({"/client/playground/propagations", "/internal/playground/propagations"})
+    public List<PropagationJob> propagations() {
+        return referencePropagationService.jobs();
+    }
+
+    @PreAuthorize("hasAnyRole('USER', 'READ')")
+    @GetMapping({"/client/playground/propagations/{id}", "/internal/playground/propagations/{id}"})
+    public PropagationJob propagation(@PathVariable("id") String id) {
+        return referencePropagationService.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(String.format("Propagation job %s not found", id)));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping({"/client/playground/indexes"})
+    public List<IndexDrift> reconcileIndexes() {
+        return indexReconciler.reconcile();
+    }
+
+    @PreAuthorize("hasRole('SYSTEM')")
+    @PutMapping({"/internal/playground/indexes"})
+    public List<IndexDrift> reconcileIndexesInternal() {
+        return indexReconciler.reconcile();
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping({"/client/playground/deleteOrphans"})
     public void deleteOrphans() {
@@ -114,12 +215,13 @@ public class SystemController {
     @PreAuthorize("hasAnyRole('USER', 'READ')")
     @GetMapping({"/client/playground/orphans", "/internal/playground/orphans"})
     public List<OrphanMetaData> orphans() {
+        Set<String> entityIds = metaDataRepository.allEntityIds();
         return Stream.of(EntityType.values())
-                .flatMap(this::orphanMetaData)
+                .flatMap(type -> this.orphanMetaData(type, entityIds))
                 .collect(toList());
     }
 
-    private Stream<OrphanMetaData> orphanMetaData(EntityType type) {
+    private Stream<OrphanMetaData> orphanMetaData(EntityType type, Set<String> entityIds) {
         Query query = new Query();
         query.fields()
                 .include("data.entityid")
@@ -153,10 +255,8 @@ public class SystemController {
                 }
             });
         });
-        List<String> types = Arrays.stream(EntityType.values()).map(EntityType::getType).collect(toList());
         return groupedByEntityIdReference.entrySet().stream()
-                .filter(entry -> types.stream()
-                        .noneMatch(entityType -> mongoTemplate.exists(new BasicQuery("{\"data.entityid\":\"" + entry.getKey() + "\"}"), entityType)))
+                .filter(entry -> !entityIds.contains(entry.getKey()))
                 .flatMap(entry -> entry.getValue().entrySet().stream().map(m ->
                         m.getValue().stream().map(metaData -> new OrphanMetaData(
                                 entry.getKey(),
@@ -4,7 +4,7 @@ import manage.model.EntityType;
 import manage.model.MetaData;
 
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
@@ -13,15 +13,32 @@ import static org.springframework.util.StringUtils.hasText;
 /**
  * Mimics the parsing of metadata from the
  * https://github.com/OpenConext/OpenConext-engineblock-metadata/blob/master/src/Entity/Assembler/JanusPushMetadataAssembler.php
+ *
+ * The attribute mappings are compiled once into a flat plan of operations per entity type, formatting an entity does
+ * not split or concatenate keys.
  */
 @SuppressWarnings("unchecked")
 public class EngineBlockFormatter {
 
-    private static final Map<String, Optional> commonAttributes = new TreeMap<>();
-    private static final Map<String, Optional> spAttributes = new TreeMap<>();
-    private static final Map<String, Optional> idpAttributes = new TreeMap<>();
+    private static final Map<String, Optional<String>> commonAttributes = new TreeMap<>();
+    private static final Map<String, Optional<String>> spAttributes = new TreeMap<>();
+    private static final Map<String, Optional<String>> idpAttributes = new TreeMap<>();
 
-    private static final int BEGIN_INDEX = "metadata:".length();
+    private static final String[] LOGO_KEYS = {"logo:0:height", "logo:0:url", "logo:0:width"};
+    private static final String[] CONTACT_FIELDS = {"contactType", "emailAddress", "telephoneNumber", "givenName", "surName"};
+    private static final String[][] CONTACT_KEYS = indexedKeys("contacts", 4, CONTACT_FIELDS);
+    private static final String[][] NAME_ID_FORMAT_KEYS = indexedKeys("NameIDFormats", 3);
+    private static final String[] LANGUAGES = {"en", "nl"};
+    private static final String[][] PRIVACY_STATEMENT_URL_KEYS = {{"mdui:PrivacyStatementURL:en"}, {"mdui:PrivacyStatementURL:nl"}};
+    private static final String[][] SINGLE_SIGN_ON_SERVICE_KEYS = indexedKeys("SingleSignOnService", 10, "Binding", "Location");
+    private static final String[][] SHIBMD_SCOPE_KEYS = indexedKeys("shibmd:scope", 10, "allowed", "regexp");
+    private static final String[][] ASSERTION_CONSUMER_SERVICE_KEYS = indexedKeys("AssertionConsumerService", 30, "Binding", "Location", "index");
+
+    private static final Map<String, FieldMapping> coinAttributes = new ConcurrentHashMap<>();
+
+    private static final List<FormatOp> commonPlan = new ArrayList<>();
+    private static final List<FormatOp> spPlan = new ArrayList<>();
+    private static final List<FormatOp> idpPlan = new ArrayList<>();
 
     static {
         commonAttributes.put("entityid", of("name"));
@@ -53,6 +70,27 @@ public class EngineBlockFormatter {
         commonAttributes.put("metadata:NameIDFormat", empty());
         //single log outs are handled in separate method
         commonAttributes.put("manipulation", of("manipulation_code"));
+
+        //The plans are compiled once and executed in this order for every entity
+        commonPlan.addAll(compile(commonAttributes));
+        commonPlan.add(EngineBlockFormatter::addCoinMetadataAttributes);
+        commonPlan.add(EngineBlockFormatter::addLogo);
+        commonPlan.add(EngineBlockFormatter::addContactPersons);
+        commonPlan.add(EngineBlockFormatter::addSingleLogOutService);
+        commonPlan.add(EngineBlockFormatter::addRedirectSign);
+        commonPlan.add(EngineBlockFormatter::addAllowedEntities);
+
+        spPlan.addAll(commonPlan);
+        spPlan.add(EngineBlockFormatter::addNameIDFormats);
+        spPlan.add(EngineBlockFormatter::addAttributeReleasePolicy);
+        spPlan.add(EngineBlockFormatter::addAssertionConsumerService);
+        spPlan.add(EngineBlockFormatter::addPrivacyStatementURL);
+        spPlan.addAll(compile(spAttributes));
+
+        idpPlan.addAll(commonPlan);
+        idpPlan.add(EngineBlockFormatter::addSingleSignOnService);
+        idpPlan.addAll(compile(idpAttributes));
+        idpPlan.add(EngineBlockFormatter::addShibMdScopes);
     }
 
     public Map<String, Object> parseServiceProvider(MetaData metaDataContainer) {
@@ -61,13 +99,7 @@ public class EngineBlockFormatter {
         Map<String, Object> serviceProvider = new TreeMap<>();
         serviceProvider.put("type", EntityType.SP.getJanusDbValue());
 
-        addCommonProviderAttributes(source, serviceProvider);
-        addNameIDFormats(source, serviceProvider);
-        addAttributeReleasePolicy(source, serviceProvider);
-        addAssertionConsumerService(source, serviceProvider);
-        addPrivacyStatementURL(source, serviceProvider);
-
-        spAttributes.forEach((key, value) -> this.addToResult(source, serviceProvider, key, value));
+        execute(spPlan, source, serviceProvider);
 
         removeEmptyValues(serviceProvider);
         return serviceProvider;
@@ -89,12 +121,7 @@ public class EngineBlockFormatter {
         List<Map<String, String>> mfaEntities = (List<Map<String, String>>) source.get("mfaEntities");
         identityProvider.put("mfa_entities", mfaEntities == null ? new ArrayList<>() : mfaEntities);
 
-        addCommonProviderAttributes(source, identityProvider);
-        addSingleSignOnService(source, identityProvider);
-
-        idpAttributes.forEach((key, value) -> this.addToResult(source, identityProvider, key, value));
-
-        addShibMdScopes(source, identityProvider);
+        execute(idpPlan, source, identityProvider);
 
         removeEmptyValues(identityProvider);
         return identityProvider;
@@ -116,27 +143,45 @@ public class EngineBlockFormatter {
         return result;
     }
 
-    private void addCommonProviderAttributes(Map<String, Object> source, Map<String, Object> result) {
-        commonAttributes.forEach((key, value) -> this.addToResult(source, result, key, value));
+    private static void execute(List<FormatOp> plan, Map<String, Object> source, Map<String, Object> result) {
+        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
+        for (FormatOp op : plan) {
+            op.apply(source, metaDataFields, result);
+        }
+    }
+
+    private static List<FormatOp> compile(Map<String, Optional<String>> attributes) {
+        List<FormatOp> ops = new ArrayList<>();
+        attributes.forEach((key, value) -> ops.add(FieldMapping.compile(key, value)::apply));
+        return ops;
+    }
 
-        addCoinMetadataAttributesToResult(source, result);
-        addLogo(source, result);
-        addContactPersons(source, result);
-        addSingleLogOutService(source, result);
-        addRedirectSign(source, result);
+    private static String[][] indexedKeys(String prefix, int count, String... fields) {
+        String[][] keys = new String[count][];
+        for (int i = 0; i < count; i++) {
+            String indexedPrefix = prefix + ":" + i;
+            keys[i] = fields.length == 0 ? new String[]{indexedPrefix.intern()} :
+                    Arrays.stream(fields).map(field -> (indexedPrefix + ":" + field).intern()).toArray(String[]::new);
+        }
+        return keys;
+    }
 
+    private static Map<String, Object> metadata(Map<String, Object> result) {
+        return (Map<String, Object>) result.computeIfAbsent("metadata", key -> new TreeMap<String, Object>());
+    }
+
+    private static void addAllowedEntities(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
         List<Map<String, String>> allowedEntities = (List<Map<String, String>>) source.get("allowedEntities");
         result.put("allowed_connections", allowedEntities == null ? new ArrayList<>() : allowedEntities);
         result.put("allow_all_entities", source.getOrDefault("allowedall", false));
     }
 
-    private void addLogo(Map<String, Object> source, Map<String, Object> result) {
-        result = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
+    private static void addLogo(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        result = metadata(result);
 
-        Object height = metaDataFields.get("logo:0:height");
-        String url = (String) metaDataFields.get("logo:0:url");
-        Object width = metaDataFields.get("logo:0:width");
+        Object height = metaDataFields.get(LOGO_KEYS[0]);
+        String url = (String) metaDataFields.get(LOGO_KEYS[1]);
+        Object width = metaDataFields.get(LOGO_KEYS[2]);
 
         if (height != null || hasText(url) || width != null) {
             ArrayList<Object> logoContainer = new ArrayList<>();
@@ -149,7 +194,7 @@ public class EngineBlockFormatter {
         }
     }
 
-    private void removeEmptyValues(Map<String, Object> result) {
+    private static void removeEmptyValues(Map<String, Object> result) {
         result.entrySet().removeIf(entry -> {
             if (entry.getValue() instanceof Map && !entry.getKey().equals("arp_attributes")) {
                 Map<String, Object> map = (Map<String, Object>) entry.getValue();
@@ -160,40 +205,37 @@ public class EngineBlockFormatter {
         });
     }
 
-    private void addContactPersons(Map<String, Object> source, Map<String, Object> result) {
-        final Map<String, Object> metadata = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new
-                TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
-        IntStream.range(0, 4).forEach(i -> {
-            String contactType = (String) metaDataFields.get("contacts:" + i + ":contactType");
-            String emailAddress = (String) metaDataFields.get("contacts:" + i + ":emailAddress");
-            String telephoneNumber = (String) metaDataFields.get("contacts:" + i + ":telephoneNumber");
-            String givenName = (String) metaDataFields.get("contacts:" + i + ":givenName");
-            String surName = (String) metaDataFields.get("contacts:" + i + ":surName");
+    private static void addContactPersons(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        final Map<String, Object> metadata = metadata(result);
+        for (String[] keys : CONTACT_KEYS) {
+            String contactType = (String) metaDataFields.get(keys[0]);
+            String emailAddress = (String) metaDataFields.get(keys[1]);
+            String telephoneNumber = (String) metaDataFields.get(keys[2]);
+            String givenName = (String) metaDataFields.get(keys[3]);
+            String surName = (String) metaDataFields.get(keys[4]);
 
             if (hasText(contactType) || hasText(emailAddress) || hasText(telephoneNumber) || hasText(givenName) || hasText(surName)) {
                 ArrayList<Object> contactsContainer = (ArrayList<Object>) metadata.computeIfAbsent(
                         "contacts", key -> new ArrayList<>());
                 Map<String, String> contact = new HashMap<>();
-                putIfHasText("contactType", contactType, contact);
-                putIfHasText("emailAddress", emailAddress, contact);
-                putIfHasText("telephoneNumber", telephoneNumber, contact);
-                putIfHasText("givenName", givenName, contact);
-                putIfHasText("surName", surName, contact);
+                putIfHasText(CONTACT_FIELDS[0], contactType, contact);
+                putIfHasText(CONTACT_FIELDS[1], emailAddress, contact);
+                putIfHasText(CONTACT_FIELDS[2], telephoneNumber, contact);
+                putIfHasText(CONTACT_FIELDS[3], givenName, contact);
+                putIfHasText(CONTACT_FIELDS[4], surName, contact);
                 contactsContainer.add(contact);
             }
-
-        });
+        }
     }
 
-    private void putIfHasText(String key, Object value, Map<String, String> result) {
+    private static void putIfHasText(String key, Object value, Map<String, String> result) {
         String sValue = parseValueToString(value);
         if (hasText(sValue)) {
             result.put(key, sValue);
         }
     }
 
-    private String parseValueToString(Object value) {
+    static String parseValueToString(Object value) {
         if (value == null) {
             return null;
         }
@@ -209,9 +251,8 @@ public class EngineBlockFormatter {
         return value.toString();
     }
 
-    private void addSingleLogOutService(Map<String, Object> source, Map<String, Object> result) {
-        result = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
+    private static void addSingleLogOutService(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        result = metadata(result);
 
         String location = (String) metaDataFields.get("SingleLogoutService_Location");
         String binding = (String) metaDataFields.get("SingleLogoutService_Binding");
@@ -226,9 +267,8 @@ public class EngineBlockFormatter {
         result.put("SingleLogoutService", subList);
     }
 
-    private void addRedirectSign(Map<String, Object> source, Map<String, Object> result) {
-        result = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
+    private static void addRedirectSign(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        result = metadata(result);
 
         String redirectSign = parseValueToString(metaDataFields.get("redirect.sign"));
         if (hasText(redirectSign)) {
@@ -238,36 +278,32 @@ public class EngineBlockFormatter {
         }
     }
 
-    private void addNameIDFormats(Map<String, Object> source, Map<String, Object> result) {
-        final Map<String, Object> metadata = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new
-                TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
+    private static void addNameIDFormats(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        final Map<String, Object> metadata = metadata(result);
 
-        IntStream.range(0, 3).forEach(i -> {
-            String nameIdFormat = (String) metaDataFields.get("NameIDFormats:" + i);
+        for (String[] keys : NAME_ID_FORMAT_KEYS) {
+            String nameIdFormat = (String) metaDataFields.get(keys[0]);
             if (hasText(nameIdFormat)) {
                 Set<String> nameIDFormats = (Set<String>) metadata.computeIfAbsent(
                         "NameIDFormats", key -> new HashSet<>());
                 nameIDFormats.add(nameIdFormat);
             }
-        });
+        }
     }
 
-    private void addPrivacyStatementURL(Map<String, Object> source, Map<String, Object> result) {
-        final Map<String, Object> metadata = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new
-                TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
-        List.of("en", "nl").forEach(lang -> {
-            String privacyStatementURL = (String) metaDataFields.get("mdui:PrivacyStatementURL:" + lang);
+    private static void addPrivacyStatementURL(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        final Map<String, Object> metadata = metadata(result);
+        for (int i = 0; i < LANGUAGES.length; i++) {
+            String privacyStatementURL = (String) metaDataFields.get(PRIVACY_STATEMENT_URL_KEYS[i][0]);
             if (hasText(privacyStatementURL)) {
                 Map<String, Object> privacyStatementURLs = (Map<String, Object>) metadata.computeIfAbsent("PrivacyStatementURL",
                         key -> new TreeMap<>());
-                privacyStatementURLs.put(lang, privacyStatementURL);
+                privacyStatementURLs.put(LANGUAGES[i], privacyStatementURL);
             }
-        });
+        }
     }
 
-    private void addAttributeReleasePolicy(Map<String, Object> source, Map<String, Object> result) {
+    private static void addAttributeReleasePolicy(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
         Object possibleArp = source.get("arp");
 
         if (possibleArp == null || possibleArp instanceof List) {
@@ -297,13 +333,11 @@ public class EngineBlockFormatter {
         }
     }
 
-    private void addSingleSignOnService(Map<String, Object> source, Map<String, Object> result) {
-        final Map<String, Object> metadata = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new
-                TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
-        IntStream.range(0, 10).forEach(i -> {
-            String binding = (String) metaDataFields.get("SingleSignOnService:" + i + ":Binding");
-            String location = (String) metaDataFields.get("SingleSignOnService:" + i + ":Location");
+    private static void addSingleSignOnService(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        final Map<String, Object> metadata = metadata(result);
+        for (String[] keys : SINGLE_SIGN_ON_SERVICE_KEYS) {
+            String binding = (String) metaDataFields.get(keys[0]);
+            String location = (String) metaDataFields.get(keys[1]);
 
             if (hasText(binding) || hasText(location)) {
                 ArrayList<Object> singleSignOnServiceContainer = (ArrayList<Object>) metadata.computeIfAbsent(
@@ -313,17 +347,14 @@ public class EngineBlockFormatter {
                 putIfHasText("Location", location, singleSignOnService);
                 singleSignOnServiceContainer.add(singleSignOnService);
             }
-
-        });
+        }
     }
 
-    private void addShibMdScopes(Map<String, Object> source, Map<String, Object> result) {
-        final Map<String, Object> metadata = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new
-                TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
-        IntStream.range(0, 10).forEach(i -> {
-            String allowed = parseValueToString(metaDataFields.get("shibmd:scope:" + i + ":allowed"));
-            String regexp = parseValueToString(metaDataFields.get("shibmd:scope:" + i + ":regexp"));
+    private static void addShibMdScopes(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        final Map<String, Object> metadata = metadata(result);
+        for (String[] keys : SHIBMD_SCOPE_KEYS) {
+            String allowed = parseValueToString(metaDataFields.get(keys[0]));
+            String regexp = parseValueToString(metaDataFields.get(keys[1]));
 
             if (hasText(allowed) || hasText(regexp)) {
                 Map<String, List<Object>> shibmdContainer = (Map<String, List<Object>>) metadata.computeIfAbsent(
@@ -338,17 +369,15 @@ public class EngineBlockFormatter {
                 }
                 scopeContainer.add(scope);
             }
-        });
+        }
     }
 
-    private void addAssertionConsumerService(Map<String, Object> source, Map<String, Object> result) {
-        final Map<String, Object> metadata = (Map<String, Object>) result.computeIfAbsent("metadata", key -> new
-                TreeMap<>());
-        Map<String, Object> metaDataFields = (Map<String, Object>) source.get("metaDataFields");
-        IntStream.range(0, 30).forEach(i -> {
-            String binding = (String) metaDataFields.get("AssertionConsumerService:" + i + ":Binding");
-            String location = (String) metaDataFields.get("AssertionConsumerService:" + i + ":Location");
-            String index = parseValueToString(metaDataFields.get("AssertionConsumerService:" + i + ":index"));
+    private static void addAssertionConsumerService(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        final Map<String, Object> metadata = metadata(result);
+        for (String[] keys : ASSERTION_CONSUMER_SERVICE_KEYS) {
+            String binding = (String) metaDataFields.get(keys[0]);
+            String location = (String) metaDataFields.get(keys[1]);
+            String index = parseValueToString(metaDataFields.get(keys[2]));
 
             if (hasText(binding) || hasText(location)) {
                 ArrayList<Object> assertionConsumerServiceContainer = (ArrayList<Object>) metadata.computeIfAbsent(
@@ -360,48 +389,36 @@ public class EngineBlockFormatter {
 
                 assertionConsumerServiceContainer.add(assertionConsumerService);
             }
+        }
+    }
 
-        });
+    private static void addCoinMetadataAttributes(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        for (String key : metaDataFields.keySet()) {
+            if (key.startsWith("coin:")) {
+                //The coin attributes are not known upfront, but their mapping is only compiled once
+                coinAttributes.computeIfAbsent(key, coin -> FieldMapping.compile("metadata:" + coin, empty()))
+                        .apply(source, metaDataFields, result);
+            }
+        }
     }
 
     protected void addCoinMetadataAttributesToResult(Map<String, Object> source,
                                                      Map<String, Object> result) {
-        Map<String, Object> metadata = (Map<String, Object>) source.get("metaDataFields");
-        metadata.keySet().stream().filter(key -> key.startsWith("coin:"))
-                .forEach(key -> {
-                    addToResult(source, result, "metadata:" + key, empty());
-                });
+        addCoinMetadataAttributes(source, (Map<String, Object>) source.get("metaDataFields"), result);
     }
 
     protected void addToResult(Map<String, Object> source,
                                Map<String, Object> result,
                                String compoundName,
                                Optional<String> convertTo) {
-        List<String> parts = Arrays.asList(compoundName.split(":"));
-        if (parts.size() == 1) {
-            Object o = source.get(compoundName);
-            if (o != null) {
-                result.put(convertTo.orElse(compoundName), parseValueToString(o));
-            }
-            return;
-        }
-        Iterator<String> iterator = parts.iterator();
-        Object value = null;
-        while (iterator.hasNext()) {
-            String part = iterator.next();
-            if (part.equals("metadata")) {
-                result = (Map<String, Object>) result.computeIfAbsent(part, key -> new TreeMap<String, Map<String,
-                        Object>>());
-                value = ((Map) source.get("metaDataFields")).get(compoundName.substring(BEGIN_INDEX));
-            } else {
-                if (iterator.hasNext()) {
-                    result = (Map<String, Object>) result.computeIfAbsent(part, key -> new TreeMap<String,
-                            Map<String, Object>>());
-                } else if (value != null) {
-                    result.put(convertTo.orElse(part), parseValueToString(value));
-                }
-            }
-        }
+        FieldMapping.compile(compoundName, convertTo)
+                .apply(source, (Map<String, Object>) source.get("metaDataFields"), result);
+    }
+
+    @FunctionalInterface
+    private interface FormatOp {
+
+        void apply(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result);
     }
 
 }
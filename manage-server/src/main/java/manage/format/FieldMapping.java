@@ -0,0 +1,53 @@
+package manage.format;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Compiled mapping of a single attribute to the EngineBlock format. For example 'metadata:OrganizationName:en' reads
+ * 'OrganizationName:en' from the metaDataFields and writes the value to metadata -> OrganizationName -> en. The
+ * compound name is split once and the intermediate maps are only created when there is a value.
+ */
+@SuppressWarnings("unchecked")
+class FieldMapping {
+
+    private static final String METADATA = "metadata";
+
+    private final String sourceKey;
+    private final boolean metaDataField;
+    private final String[] path;
+    private final String target;
+
+    private FieldMapping(String sourceKey, boolean metaDataField, String[] path, String target) {
+        this.sourceKey = sourceKey;
+        this.metaDataField = metaDataField;
+        this.path = path;
+        this.target = target;
+    }
+
+    static FieldMapping compile(String compoundName, Optional<String> convertTo) {
+        String[] parts = compoundName.split(":");
+        if (parts.length == 1) {
+            return new FieldMapping(compoundName, false, new String[0], convertTo.orElse(compoundName));
+        }
+        if (!parts[0].equals(METADATA)) {
+            throw new IllegalArgumentException(String.format("Not a metadata attribute: %s", compoundName));
+        }
+        String sourceKey = compoundName.substring(METADATA.length() + 1).intern();
+        String[] path = Arrays.stream(parts, 0, parts.length - 1).map(String::intern).toArray(String[]::new);
+        return new FieldMapping(sourceKey, true, path, convertTo.orElse(parts[parts.length - 1]).intern());
+    }
+
+    void apply(Map<String, Object> source, Map<String, Object> metaDataFields, Map<String, Object> result) {
+        Object value = metaDataField ? metaDataFields.get(sourceKey) : source.get(sourceKey);
+        if (value == null) {
+            return;
+        }
+        for (String part : path) {
+            result = (Map<String, Object>) result.computeIfAbsent(part, key -> new TreeMap<String, Object>());
+        }
+        result.put(target, EngineBlockFormatter.parseValueToString(value));
+    }
+}
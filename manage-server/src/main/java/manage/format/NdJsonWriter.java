@@ -0,0 +1,50 @@
+package manage.format;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes newline delimited JSON - one document per line - to the output stream. The output is flushed after the first
+ * document and then after every FLUSH_INTERVAL documents, so the client can start processing right away.
+ */
+public class NdJsonWriter implements Closeable {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final JsonGenerator generator;
+    private long count;
+
+    public NdJsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        //The owner of the output stream is responsible for closing it
+        this.generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    public void write(Object document) throws IOException {
+        generator.writeObject(document);
+        generator.writeRaw('\n');
+        if (count++ % FLUSH_INTERVAL == 0) {
+            generator.flush();
+        }
+    }
+
+    public void writeAll(Iterator<?> documents) throws IOException {
+        while (documents.hasNext()) {
+            this.write(documents.next());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,56 @@
+package manage.format;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the EngineBlock push payload - {"connections": {"id": {..}, ..}} - one connection at the time directly
+ * to the output stream, so the complete payload is never held in memory. The payload is only completed by
+ * {@link #finish()}: closing the writer without it - e.g. when formatting a connection fails - leaves the JSON
+ * unterminated, so a partial payload is never mistaken for the complete set of connections.
+ */
+public class PushWriter implements Closeable {
+
+    private final JsonGenerator generator;
+
+    public PushWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        //The owner of the output stream is responsible for closing it
+        this.generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        this.generator.configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
+        this.generator.writeStartObject();
+        this.generator.writeFieldName("connections");
+        this.generator.writeStartObject();
+    }
+
+    /**
+     * The connection is already serialized to JSON and written as-is.
+     */
+    public void write(String id, String connection) {
+        try {
+            generator.writeFieldName(id);
+            generator.writeRawValue(connection);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Completes the payload after all the connections are written.
+     */
+    public void finish() throws IOException {
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
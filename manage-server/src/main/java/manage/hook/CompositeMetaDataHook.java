@@ -1,19 +1,57 @@
 package manage.hook;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import manage.model.EntityType;
+import manage.model.HookTiming;
 import manage.model.MetaData;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Calls the hooks in order. The chain of hooks that can apply for an entity type is composed once and every call of a
+ * hook is timed per phase and type with the timer 'manage.hook'.
+ */
 public class CompositeMetaDataHook implements MetaDataHook {
 
-    private List<MetaDataHook> hooks;
+    enum Phase {
+        POST_GET("postGet"), PRE_PUT("prePut"), PRE_POST("prePost"), PRE_DELETE("preDelete"),
+        PRE_VALIDATE("preValidate");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final String TIMER = "manage.hook";
+
+    private final List<MetaDataHook> hooks;
+    private final Map<String, List<ChainedHook>> chains = new HashMap<>();
 
     public CompositeMetaDataHook(List<MetaDataHook> hooks) {
+        this(hooks, new SimpleMeterRegistry());
+    }
+
+    public CompositeMetaDataHook(List<MetaDataHook> hooks, MeterRegistry meterRegistry) {
         Assert.isTrue(!CollectionUtils.isEmpty(hooks), "Hooks may not be empty");
-        this.hooks = hooks;
+        this.hooks = List.copyOf(hooks);
+        Stream.of(EntityType.values()).forEach(entityType -> chains.put(entityType.getType(), this.hooks.stream()
+                .filter(hook -> hook.appliesForEntityType(entityType))
+                .map(hook -> new ChainedHook(hook, entityType.getType(), meterRegistry))
+                .collect(toList())));
     }
 
     @Override
@@ -21,41 +59,108 @@ public class CompositeMetaDataHook implements MetaDataHook {
         return true;
     }
 
+    @Override
+    public boolean appliesForEntityType(EntityType entityType) {
+        return true;
+    }
+
     @Override
     public MetaData postGet(MetaData metaData) {
-        return this.callback(metaData, (md, hook) -> hook.postGet(md));
+        return this.callback(metaData, Phase.POST_GET, (md, hook) -> hook.postGet(md));
     }
 
     @Override
     public MetaData prePut(MetaData previous, MetaData newMetaData) {
-        AtomicReference<MetaData> ref = new AtomicReference<>(newMetaData);
-        hooks.stream().filter(hook -> hook.appliesForMetaData(newMetaData)).forEach(hook -> ref.set(hook.prePut(previous, ref.get())));
-        return ref.get();
+        return this.callback(newMetaData, Phase.PRE_PUT, (md, hook) -> hook.prePut(previous, md));
     }
 
     @Override
     public MetaData prePost(MetaData metaData) {
-        return this.callback(metaData, (md, hook) -> hook.prePost(md));
+        return this.callback(metaData, Phase.PRE_POST, (md, hook) -> hook.prePost(md));
     }
 
     @Override
     public MetaData preDelete(MetaData metaData) {
-        return this.callback(metaData, (md, hook) -> hook.preDelete(md));
+        return this.callback(metaData, Phase.PRE_DELETE, (md, hook) -> hook.preDelete(md));
     }
 
     @Override
     public MetaData preValidate(MetaData metaData) {
-        return this.callback(metaData, (md, hook) -> hook.preValidate(md));
+        return this.callback(metaData, Phase.PRE_VALIDATE, (md, hook) -> hook.preValidate(md));
     }
 
-    private MetaData callback(MetaData metaData, Callback callback) {
-        AtomicReference<MetaData> ref = new AtomicReference<>(metaData);
-        hooks.stream().filter(hook -> hook.appliesForMetaData(metaData)).forEach(hook -> ref.set(callback.doHook(ref.get(), hook)));
-        return ref.get();
+    /**
+     * The timings of the hooks that have been called, slowest in total first.
+     */
+    public List<HookTiming> timings() {
+        return chains.values().stream()
+                .flatMap(List::stream)
+                .flatMap(chainedHook -> chainedHook.timings().stream())
+                .filter(timing -> timing.getCount() > 0)
+                .sorted(Comparator.comparingDouble(HookTiming::getTotalMillis).reversed())
+                .collect(toList());
+    }
+
+    private MetaData callback(MetaData metaData, Phase phase, Callback callback) {
+        //The applicability is decided on the entity the chain started with, as it was before the hooks changed it
+        MetaData original = metaData;
+        List<ChainedHook> chain = chains.get(metaData.getType());
+        if (chain == null) {
+            for (MetaDataHook hook : hooks) {
+                if (hook.appliesForMetaData(original)) {
+                    metaData = callback.doHook(metaData, hook);
+                }
+            }
+            return metaData;
+        }
+        for (ChainedHook chainedHook : chain) {
+            if (chainedHook.hook.appliesForMetaData(original)) {
+                metaData = chainedHook.call(phase, metaData, callback);
+            }
+        }
+        return metaData;
     }
 
     interface Callback {
         MetaData doHook(MetaData metaData, MetaDataHook hook);
     }
 
+    private static class ChainedHook {
+
+        private final MetaDataHook hook;
+        private final String name;
+        private final String type;
+        private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+
+        private ChainedHook(MetaDataHook hook, String type, MeterRegistry meterRegistry) {
+            this.hook = hook;
+            String simpleName = hook.getClass().getSimpleName();
+            this.name = simpleName.isEmpty() ? hook.getClass().getName() : simpleName;
+            this.type = type;
+            Stream.of(Phase.values()).forEach(phase -> timers.put(phase, Timer.builder(TIMER)
+                    .tag("hook", name)
+                    .tag("phase", phase.name)
+                    .tag("type", type)
+                    .register(meterRegistry)));
+        }
+
+        private MetaData call(Phase phase, MetaData metaData, Callback callback) {
+            long start = System.nanoTime();
+            try {
+                return callback.doHook(metaData, hook);
+            } finally {
+                timers.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private List<HookTiming> timings() {
+            return timers.entrySet().stream()
+                    .map(entry -> new HookTiming(name, entry.getKey().name, type, entry.getValue().count(),
+                            entry.getValue().totalTime(TimeUnit.MILLISECONDS),
+                            entry.getValue().mean(TimeUnit.MILLISECONDS),
+                            entry.getValue().max(TimeUnit.MILLISECONDS)))
+                    .collect(toList());
+        }
+    }
+
 }
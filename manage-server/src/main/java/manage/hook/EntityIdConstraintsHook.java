@@ -7,8 +7,10 @@ import org.springframework.util.CollectionUtils;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
@@ -56,13 +58,14 @@ public class EntityIdConstraintsHook extends MetaDataHookAdapter {
             if (newMetaData.getData().containsKey(key)) {
                 List<Map<String, String>> references = (List<Map<String, String>>) newMetaData.getData().get(key);
                 if (!CollectionUtils.isEmpty(references)) {
+                    //One query per referenced type for all references
+                    List<String> names = references.stream().map(map -> map.get("name")).collect(toList());
+                    Set<String> existing = new HashSet<>();
+                    value.forEach(entityType ->
+                            existing.addAll(metaDataRepository.existingEntityIds(entityType.getType(), names)));
                     List<Map<String, String>> strippedReferences = references.stream()
-                            .filter(map -> value.stream()
-                                    .anyMatch(entityType ->
-                                            !CollectionUtils.isEmpty(
-                                                    metaDataRepository.findRaw(entityType.getType(),
-                                                            String.format("{\"data.entityid\" : \"%s\"}", map.get("name")))))
-                            ).collect(toList());
+                            .filter(map -> existing.contains(map.get("name")))
+                            .collect(toList());
                     newMetaData.getData().put(key, strippedReferences);
                 }
             }
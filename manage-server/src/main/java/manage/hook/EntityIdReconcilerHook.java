@@ -2,27 +2,25 @@ package manage.hook;
 
 import manage.model.EntityType;
 import manage.model.MetaData;
-import manage.repository.MetaDataRepository;
+import manage.service.ReferencePropagationService;
 
 import java.util.*;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
-import static java.util.stream.Collectors.toList;
 import static manage.model.EntityType.IDP;
 import static manage.model.EntityType.RP;
 import static manage.model.EntityType.RS;
 import static manage.model.EntityType.SP;
 import static manage.model.EntityType.STT;
 
-@SuppressWarnings("unchecked")
 public class EntityIdReconcilerHook extends MetaDataHookAdapter {
 
-    private final MetaDataRepository metaDataRepository;
+    private final ReferencePropagationService referencePropagationService;
 
-    public EntityIdReconcilerHook(MetaDataRepository metaDataRepository) {
-        this.metaDataRepository = metaDataRepository;
+    public EntityIdReconcilerHook(ReferencePropagationService referencePropagationService) {
+        this.referencePropagationService = referencePropagationService;
     }
 
     @Override
@@ -38,47 +36,18 @@ public class EntityIdReconcilerHook extends MetaDataHookAdapter {
         if (oldEntityId.equals(newEntityId)) {
             return newMetaData;
         }
-        String metaDataType = newMetaData.getType();
-        List<String> types = metaDataTypesForeignKeyRelations(metaDataType);
-        getCollectionReferenceNames(metaDataType).forEach(name ->
-                types.forEach(type -> {
-                    List<MetaData> references = metaDataRepository.findRaw(type,
-                            String.format("{\"data.%s.name\" : \"%s\"}", name, oldEntityId));
-
-                    String revisionNote = String.format("Updated after entityId rename of %s to %s", oldEntityId, newEntityId);
-
-                    references.forEach(metaData -> {
-                        List<Map<String, String>> entities = (List<Map<String, String>>) metaData.getData().getOrDefault(name, new ArrayList<>());
-                        entities.stream().filter(entry -> oldEntityId.equals(entry.get("name")))
-                                .findAny()
-                                .ifPresent(entry -> entry.put("name", newEntityId));
-                        this.revision(metaData, revisionNote);
-                    });
-                }));
+        String revisionNote = String.format("Updated after entityId rename of %s to %s", oldEntityId, newEntityId);
+        referencePropagationService.propagate(oldEntityId, newEntityId, referenceProperties(newMetaData.getType()),
+                revisionNote);
         return newMetaData;
     }
 
     @Override
     public MetaData preDelete(MetaData metaDataToBeDeleted) {
         String entityId = entityId(metaDataToBeDeleted);
-        String metaDataType = metaDataToBeDeleted.getType();
-
-        List<String> types = metaDataTypesForeignKeyRelations(metaDataType);
-        getCollectionReferenceNames(metaDataType).forEach(name -> {
-            types.forEach(type -> {
-                List<MetaData> references = metaDataRepository.findRaw(type,
-                        String.format("{\"data.%s.name\" : \"%s\"}", name, entityId));
-
-                String revisionNote = String.format("Updated after deletion of entityId %s", entityId);
-
-                references.forEach(metaData -> {
-                    List<Map<String, String>> entities = (List<Map<String, String>>) metaData.getData().getOrDefault(name, new ArrayList<>());
-                    entities = entities.stream().filter(entry -> !entityId.equals(entry.get("name"))).collect(toList());
-                    metaData.getData().put(name, entities);
-                    this.revision(metaData, revisionNote);
-                });
-            });
-        });
+        String revisionNote = String.format("Updated after deletion of entityId %s", entityId);
+        referencePropagationService.propagate(entityId, null, referenceProperties(metaDataToBeDeleted.getType()),
+                revisionNote);
         return metaDataToBeDeleted;
     }
 
@@ -86,16 +55,13 @@ public class EntityIdReconcilerHook extends MetaDataHookAdapter {
         return (String) metaData.getData().get("entityid");
     }
 
-    private void revision(MetaData metaData, String revisionNote) {
-        String id = metaData.getId();
-        MetaData previous = metaDataRepository.findById(id, metaData.getType());
-        previous.revision(UUID.randomUUID().toString());
-        metaDataRepository.save(previous);
-
-        metaData.promoteToLatest("System", revisionNote);
-        metaDataRepository.update(metaData);
-
+    private Map<String, List<String>> referenceProperties(String metaDataType) {
+        List<String> names = getCollectionReferenceNames(metaDataType);
+        Map<String, List<String>> referenceProperties = new LinkedHashMap<>();
+        metaDataTypesForeignKeyRelations(metaDataType).forEach(type -> referenceProperties.put(type, names));
+        return referenceProperties;
     }
+
     private List<String> getCollectionReferenceNames(String type) {
         if (type.equals(STT.getType())) {
             return emptyList();
@@ -1,11 +1,22 @@
 package manage.hook;
 
+import manage.model.EntityType;
 import manage.model.MetaData;
 
+import java.util.HashMap;
+
 public interface MetaDataHook {
 
     boolean appliesForMetaData(MetaData metaData);
 
+    /**
+     * Whether the hook can apply for entities of the type, used to compose the hook chain of each type once. Hooks
+     * that also depend on the data of the entity must override this, as the default only looks at an empty entity.
+     */
+    default boolean appliesForEntityType(EntityType entityType) {
+        return appliesForMetaData(new MetaData(entityType.getType(), new HashMap<>()));
+    }
+
     MetaData postGet(MetaData metaData);
 
     MetaData prePut(MetaData previous, MetaData newMetaData);
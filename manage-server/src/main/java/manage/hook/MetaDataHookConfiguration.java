@@ -2,10 +2,14 @@ package manage.hook;
 
 import crypto.KeyStore;
 import crypto.RSAKeyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import manage.conf.MetaDataAutoConfiguration;
 import manage.repository.MetaDataRepository;
+import manage.service.ReferencePropagationService;
 import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -23,11 +27,13 @@ public class MetaDataHookConfiguration {
     @SneakyThrows
     CompositeMetaDataHook hooks(MetaDataRepository metaDataRepository,
                                 MetaDataAutoConfiguration metaDataAutoConfiguration,
+                                ReferencePropagationService referencePropagationService,
+                                ObjectProvider<MeterRegistry> meterRegistry,
                                 @Value("${crypto.public-key-location}") Resource publicKeyResource,
                                 @Value("${crypto.development-mode}") Boolean developmentMode) {
 
         EmptyRevisionHook emptyRevisionHook = new EmptyRevisionHook(metaDataAutoConfiguration);
-        EntityIdReconcilerHook entityIdReconcilerHook = new EntityIdReconcilerHook(metaDataRepository);
+        EntityIdReconcilerHook entityIdReconcilerHook = new EntityIdReconcilerHook(referencePropagationService);
         SecretHook secretHook = new SecretHook(metaDataAutoConfiguration);
         TypeSafetyHook typeSafetyHook = new TypeSafetyHook(metaDataAutoConfiguration);
         EntityIdConstraintsHook entityIdConstraintsHook = new EntityIdConstraintsHook(metaDataRepository);
@@ -50,7 +56,9 @@ public class MetaDataHookConfiguration {
                         secretHook,
                         requiredAttributesHook,
                         provisioningHook,
-                        encryptionHook));
+                        encryptionHook),
+                //The metrics auto-configuration is excluded, the timings are also served by the SystemController
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
     }
 
 
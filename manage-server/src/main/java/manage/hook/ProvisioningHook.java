@@ -80,7 +80,7 @@ public class ProvisioningHook extends MetaDataHookAdapter {
     private MetaData filterInvalidApplications(MetaData metaData) {
         List<Map<String, String>> applications = (List<Map<String, String>>) metaData.getData().getOrDefault("applications", Collections.emptyList());
         List<Map<String, String>> newApplications = applications.stream()
-                .filter(application -> metaDataRepository.findById(application.get("id"), application.get("type")) != null)
+                .filter(application -> metaDataRepository.existsById(application.get("type"), application.get("id")))
                 .collect(toList());
         metaData.getData().put("applications", newApplications);
         return metaData;
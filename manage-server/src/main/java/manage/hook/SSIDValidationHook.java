@@ -31,6 +31,11 @@ public class SSIDValidationHook extends MetaDataHookAdapter {
         return isRpOrSp && metaData.metaDataFields().containsKey("coin:stepup:requireloa");
     }
 
+    @Override
+    public boolean appliesForEntityType(EntityType entityType) {
+        return entityType.equals(EntityType.RP) || entityType.equals(EntityType.SP);
+    }
+
     @Override
     public MetaData prePut(MetaData previous, MetaData newMetaData) {
         validate(newMetaData);
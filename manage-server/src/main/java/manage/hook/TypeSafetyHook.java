@@ -4,8 +4,11 @@ import manage.conf.MetaDataAutoConfiguration;
 import manage.model.EntityType;
 import manage.model.MetaData;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -13,6 +16,7 @@ import java.util.stream.Collectors;
 public class TypeSafetyHook extends MetaDataHookAdapter {
 
     private final MetaDataAutoConfiguration metaDataAutoConfiguration;
+    private final Map<EntityType, CoercionPlan> plans = new ConcurrentHashMap<>();
 
     public TypeSafetyHook(MetaDataAutoConfiguration metaDataAutoConfiguration) {
         this.metaDataAutoConfiguration = metaDataAutoConfiguration;
@@ -27,38 +31,116 @@ public class TypeSafetyHook extends MetaDataHookAdapter {
     @Override
     @SuppressWarnings("unchecked")
     public MetaData preValidate(MetaData metaData) {
-        Map<String, Object> schema = this.metaDataAutoConfiguration.schemaRepresentation(EntityType.fromType(metaData.getType()));
-        Map<String, Object> schemaMetaDataFields = Map.class.cast(Map.class.cast(schema.get("properties")).get("metaDataFields"));
-
-        List<String> booleanPatternKeys = typedProperties(schemaMetaDataFields, "boolean", "patternProperties");
-        List<String> numberPatternKeys = typedProperties(schemaMetaDataFields, "number", "patternProperties");
-
-        List<String> booleanKeys = typedProperties(schemaMetaDataFields, "boolean", "properties");
-        List<String> numberKeys = typedProperties(schemaMetaDataFields, "number", "properties");
+        CoercionPlan plan = this.coercionPlan(EntityType.fromType(metaData.getType()));
 
         Map<String, Object> metaDataFields = metaData.metaDataFields();
         metaDataFields.forEach((key, value) -> {
-            if ((propertyMatches(key, booleanKeys) || patternPropertyMatches(key, booleanPatternKeys)) && value instanceof String) {
+            if (!(value instanceof String)) {
+                return;
+            }
+            Coercion coercion = plan.coercion(key);
+            if (coercion.toBoolean) {
                 metaDataFields.put(key, "1".equals(value));
             }
-            if ((propertyMatches(key, numberKeys) || patternPropertyMatches(key, numberPatternKeys)) && value instanceof String) {
+            if (coercion.toNumber) {
                 metaDataFields.put(key, Integer.parseInt((String) value));
             }
         });
         return metaData;
     }
 
-    private boolean propertyMatches(String key, List<String> properties) {
-        return properties.contains(key);
+    private CoercionPlan coercionPlan(EntityType entityType) {
+        Map<String, Object> schema = this.metaDataAutoConfiguration.schemaRepresentation(entityType);
+        CoercionPlan plan = plans.get(entityType);
+        //The plan is compiled again if the schema representation has been replaced
+        if (plan == null || plan.schema != schema) {
+            plan = new CoercionPlan(schema);
+            plans.put(entityType, plan);
+        }
+        return plan;
     }
 
-    private boolean patternPropertyMatches(String key, List<String> patternProperties) {
-        return patternProperties.stream().filter(prop -> Pattern.compile(prop).matcher(key).matches()).count() > 0;
+    private enum Coercion {
+        NONE(false, false), BOOLEAN(true, false), NUMBER(false, true), BOOLEAN_AND_NUMBER(true, true);
+
+        private final boolean toBoolean;
+        private final boolean toNumber;
+
+        Coercion(boolean toBoolean, boolean toNumber) {
+            this.toBoolean = toBoolean;
+            this.toNumber = toNumber;
+        }
     }
 
-    private List<String> typedProperties(Map metaDataFields, String type, String name) {
-        Map<String, Map<String, Object>> patternProperties = (Map<String, Map<String, Object>>) metaDataFields.get(name);
-        return patternProperties.entrySet().stream().filter(e -> e.getValue().containsKey("type") && e.getValue().get("type").equals(type)).map(e -> e.getKey()).collect(Collectors.toList());
+    /**
+     * The boolean and number metaDataFields of a schema. The exact keys are kept in sets, the pattern keys are merged
+     * into one pattern per type and the coercion is remembered per key.
+     */
+    private static class CoercionPlan {
+
+        //Keys of pattern properties contain an index, so there is no fixed number of them
+        private static final int MAX_MEMOIZED_KEYS = 10_000;
+
+        private final Map<String, Object> schema;
+        private final Set<String> booleanKeys;
+        private final Set<String> numberKeys;
+        private final Pattern booleanPattern;
+        private final Pattern numberPattern;
+        private final Map<String, Coercion> coercions = new ConcurrentHashMap<>();
+
+        private CoercionPlan(Map<String, Object> schema) {
+            this.schema = schema;
+            Map<String, Object> schemaMetaDataFields =
+                    Map.class.cast(Map.class.cast(schema.get("properties")).get("metaDataFields"));
+            this.booleanKeys = Set.copyOf(typedProperties(schemaMetaDataFields, "boolean", "properties"));
+            this.numberKeys = Set.copyOf(typedProperties(schemaMetaDataFields, "number", "properties"));
+            this.booleanPattern = pattern(typedProperties(schemaMetaDataFields, "boolean", "patternProperties"));
+            this.numberPattern = pattern(typedProperties(schemaMetaDataFields, "number", "patternProperties"));
+        }
+
+        private Coercion coercion(String key) {
+            Coercion coercion = coercions.get(key);
+            if (coercion == null) {
+                coercion = this.compute(key);
+                if (coercions.size() < MAX_MEMOIZED_KEYS) {
+                    coercions.put(key, coercion);
+                }
+            }
+            return coercion;
+        }
+
+        private Coercion compute(String key) {
+            boolean toBoolean = booleanKeys.contains(key) || matches(booleanPattern, key);
+            boolean toNumber = numberKeys.contains(key) || matches(numberPattern, key);
+            if (toBoolean && toNumber) {
+                return Coercion.BOOLEAN_AND_NUMBER;
+            }
+            return toBoolean ? Coercion.BOOLEAN : toNumber ? Coercion.NUMBER : Coercion.NONE;
+        }
+
+        private static boolean matches(Pattern pattern, String key) {
+            return pattern != null && pattern.matcher(key).matches();
+        }
+
+        private static Pattern pattern(List<String> patternKeys) {
+            if (patternKeys.isEmpty()) {
+                return null;
+            }
+            return Pattern.compile(patternKeys.stream()
+                    .map(patternKey -> String.format("(?:%s)", patternKey))
+                    .collect(Collectors.joining("|")));
+        }
+
+        private static List<String> typedProperties(Map metaDataFields, String type, String name) {
+            Map<String, Map<String, Object>> properties = (Map<String, Map<String, Object>>) metaDataFields.get(name);
+            if (properties == null) {
+                return Collections.emptyList();
+            }
+            return properties.entrySet().stream()
+                    .filter(e -> e.getValue().containsKey("type") && e.getValue().get("type").equals(type))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
     }
 
 }
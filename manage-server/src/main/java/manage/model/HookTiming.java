@@ -0,0 +1,18 @@
+package manage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class HookTiming {
+
+    private String hook;
+    private String phase;
+    private String type;
+    private long count;
+    private double totalMillis;
+    private double meanMillis;
+    private double maxMillis;
+
+}
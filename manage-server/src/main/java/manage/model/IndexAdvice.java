@@ -0,0 +1,15 @@
+package manage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class IndexAdvice {
+
+    private String collection;
+    private String filter;
+    private String collation;
+    private long count;
+
+}
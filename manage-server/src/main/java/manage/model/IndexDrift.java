@@ -0,0 +1,22 @@
+package manage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class IndexDrift {
+
+    private String collection;
+    private String name;
+    private List<String> fields;
+    private Status status;
+    private String message;
+
+    public enum Status {
+        MISSING, CREATED, CONFLICT, FAILED, UNSUPPORTED
+    }
+
+}
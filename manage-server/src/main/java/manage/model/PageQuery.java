@@ -0,0 +1,25 @@
+package manage.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The optional pagination request parameters of the list endpoints. Without pageSize, pageToken and sort all the
+ * results are returned, otherwise pages of at most search.max_page_size results.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PageQuery {
+
+    private Integer pageSize;
+
+    private String pageToken;
+
+    /**
+     * Either 'id' (default) or 'entityid', only used for the first page
+     */
+    private String sort;
+
+}
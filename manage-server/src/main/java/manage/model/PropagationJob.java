@@ -0,0 +1,70 @@
+package manage.model;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The propagation of an entityid rename - or deletion - to the references of the other entities. Propagations with
+ * more references than the threshold run in the background.
+ */
+@Getter
+public class PropagationJob {
+
+    public enum Status {
+        PENDING, RUNNING, FINISHED, FAILED
+    }
+
+    private final String id;
+    private final Instant created;
+    private final String entityId;
+    /**
+     * Null if the entity is deleted
+     */
+    private final String newEntityId;
+    private final long references;
+    private final boolean background;
+
+    private volatile Status status = Status.PENDING;
+    private volatile Instant started;
+    private volatile Instant finished;
+    private volatile long updated;
+    private volatile String error;
+
+    public PropagationJob(String id, String entityId, String newEntityId, long references, boolean background) {
+        this.id = id;
+        this.entityId = entityId;
+        this.newEntityId = newEntityId;
+        this.references = references;
+        this.background = background;
+        this.created = Instant.now();
+    }
+
+    public void start() {
+        this.started = Instant.now();
+        this.status = Status.RUNNING;
+    }
+
+    public void updated(long updated) {
+        this.updated += updated;
+    }
+
+    public void finish() {
+        this.finished = Instant.now();
+        this.status = Status.FINISHED;
+    }
+
+    public void fail(RuntimeException e) {
+        this.error = e.getMessage();
+        this.finished = Instant.now();
+        this.status = Status.FAILED;
+    }
+
+    public Long getDurationMillis() {
+        if (started == null) {
+            return null;
+        }
+        return Duration.between(started, finished == null ? Instant.now() : finished).toMillis();
+    }
+}
@@ -17,10 +17,20 @@ public class Push {
     @NotNull
     private String id;
 
+    /**
+     * The moment the push was started. All changes after this moment are part of the next (delta) push.
+     */
     @NotNull
     private Instant created;
 
     @NotNull
     private String userId;
 
+    private boolean full;
+
+    /**
+     * The content hash of the connections of a full push, used to skip pushes when nothing has changed
+     */
+    private String hash;
+
 }
@@ -0,0 +1,86 @@
+package manage.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A push to EngineBlock and OIDC-NG. Push requests that arrive while a push job is still pending are coalesced into
+ * that job.
+ */
+@Getter
+public class PushJob {
+
+    public enum Status {
+        PENDING, RUNNING, FINISHED, FAILED
+    }
+
+    private final String id;
+    private final Instant created;
+    private final String requestedBy;
+
+    private volatile boolean delta;
+    private volatile boolean force;
+    private volatile int coalesced;
+    private volatile Status status = Status.PENDING;
+    /**
+     * The push leg that is currently running, either 'eb' or 'oidc'
+     */
+    private volatile String phase;
+    private volatile Instant started;
+    private volatile Instant finished;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+
+    @JsonIgnore
+    private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+
+    public PushJob(String id, boolean delta, boolean force, String requestedBy) {
+        this.id = id;
+        this.delta = delta;
+        this.force = force;
+        this.requestedBy = requestedBy;
+        this.created = Instant.now();
+    }
+
+    public void coalesce(boolean delta, boolean force) {
+        //A full push includes all the changes of a delta push
+        this.delta = this.delta && delta;
+        this.force = this.force || force;
+        this.coalesced++;
+    }
+
+    public void start() {
+        this.started = Instant.now();
+        this.status = Status.RUNNING;
+    }
+
+    public void phase(String phase) {
+        this.phase = phase;
+    }
+
+    public void finish(Map<String, Object> result) {
+        this.result = result;
+        this.finished = Instant.now();
+        this.status = Status.FINISHED;
+        this.future.complete(result);
+    }
+
+    public void fail(RuntimeException e) {
+        this.error = e.getMessage();
+        this.finished = Instant.now();
+        this.status = Status.FAILED;
+        this.future.completeExceptionally(e);
+    }
+
+    public Long getDurationMillis() {
+        if (started == null) {
+            return null;
+        }
+        return Duration.between(started, finished == null ? Instant.now() : finished).toMillis();
+    }
+}
@@ -34,10 +34,6 @@ public class Revision {
         ++this.number;
     }
 
-    public void markCreatedWithTerminatedInstant() {
-        this.created = terminated;
-    }
-
 
     public void deTerminate(String newId) {
         this.terminated = null;
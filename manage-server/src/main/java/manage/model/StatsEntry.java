@@ -7,4 +7,6 @@ public class StatsEntry {
 
     public String name;
     public Long count;
+    public Long storageSize;
+    public Long indexSize;
 }
@@ -0,0 +1,221 @@
+package manage.mongo;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import manage.model.EntityType;
+import manage.model.IndexAdvice;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static manage.mongo.MongoChangelog.CHANGE_REQUEST_POSTFIX;
+import static manage.mongo.MongoChangelog.REVISION_POSTFIX;
+
+/**
+ * Records the shapes - the fields and operators without the values - of the filters of the find, count, distinct and
+ * aggregate commands on the metadata collections and reports the shapes that can not use any index and therefore
+ * require a collection scan. Filters without any criteria read the whole collection by design and are not recorded.
+ * The advisor inspects every command of the driver and is therefore only registered with index_advisor.enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "index_advisor.enabled", havingValue = "true")
+public class IndexAdvisor implements CommandListener {
+
+    static final int MAX_SHAPES = 1000;
+
+    private final ObjectProvider<MongoTemplate> mongoTemplateProvider;
+    private final Set<String> collections;
+    private final Map<String, QueryShape> shapes = new ConcurrentHashMap<>();
+
+    public IndexAdvisor(ObjectProvider<MongoTemplate> mongoTemplateProvider) {
+        //The MongoTemplate depends on the MongoClient this listener is registered with
+        this.mongoTemplateProvider = mongoTemplateProvider;
+        this.collections = Stream.of(EntityType.values())
+                .map(EntityType::getType)
+                .flatMap(type -> Stream.of(type, type.concat(REVISION_POSTFIX), type.concat(CHANGE_REQUEST_POSTFIX)))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        BsonDocument command = event.getCommand();
+        BsonValue collection = command.get(commandName);
+        if (collection == null || !collection.isString() || !collections.contains(collection.asString().getValue())) {
+            return;
+        }
+        BsonDocument filter = filter(commandName, command);
+        if (filter == null || filter.isEmpty()) {
+            return;
+        }
+        String collation = command.isDocument("collation") && command.getDocument("collation").isString("locale") ?
+                command.getDocument("collation").getString("locale").getValue() : null;
+        BsonDocument shape = shape(filter);
+        String key = String.join("|", collection.asString().getValue(), shape.toJson(), String.valueOf(collation));
+        QueryShape queryShape = shapes.get(key);
+        if (queryShape == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                return;
+            }
+            queryShape = shapes.computeIfAbsent(key, k ->
+                    new QueryShape(collection.asString().getValue(), shape, collation));
+        }
+        queryShape.count.increment();
+    }
+
+    /**
+     * The recorded query shapes that can not be answered by any of the current indexes of the collection, most
+     * frequent first
+     */
+    public List<IndexAdvice> advise() {
+        MongoTemplate mongoTemplate = mongoTemplateProvider.getObject();
+        Map<String, List<Document>> indexes = new HashMap<>();
+        return shapes.values().stream()
+                .filter(shape -> !covered(shape.filter, leadingKeys(
+                        indexes.computeIfAbsent(shape.collection, collection -> indexes(mongoTemplate, collection)),
+                        shape.collation)))
+                .map(shape -> new IndexAdvice(shape.collection, shape.filter.toJson(), shape.collation,
+                        shape.count.sum()))
+                .sorted(Comparator.comparingLong(IndexAdvice::getCount).reversed()
+                        .thenComparing(IndexAdvice::getCollection)
+                        .thenComparing(IndexAdvice::getFilter))
+                .collect(toList());
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    private static List<Document> indexes(MongoTemplate mongoTemplate, String collection) {
+        return mongoTemplate.getCollection(collection).listIndexes().into(new ArrayList<>());
+    }
+
+    private static BsonDocument filter(String commandName, BsonDocument command) {
+        switch (commandName) {
+            case "find":
+                return command.isDocument("filter") ? command.getDocument("filter") : null;
+            case "count":
+            case "distinct":
+                return command.isDocument("query") ? command.getDocument("query") : null;
+            case "aggregate":
+                BsonArray pipeline = command.isArray("pipeline") ? command.getArray("pipeline") : new BsonArray();
+                return pipeline.stream()
+                        .findFirst()
+                        .filter(stage -> stage.isDocument() && stage.asDocument().isDocument("$match"))
+                        .map(stage -> stage.asDocument().getDocument("$match"))
+                        .orElse(null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Replaces all the values with 1 and sorts the fields, so filters that only differ in values share one shape
+     */
+    static BsonDocument shape(BsonDocument filter) {
+        Map<String, BsonValue> sorted = new TreeMap<>();
+        filter.forEach((key, value) -> {
+            if (value.isArray() && Stream.of("$and", "$or", "$nor").anyMatch(key::equals)) {
+                BsonArray branches = new BsonArray(value.asArray().stream()
+                        .filter(BsonValue::isDocument)
+                        .map(branch -> shape(branch.asDocument()))
+                        .collect(toList()));
+                sorted.put(key, branches);
+            } else if (value.isDocument() && !key.startsWith("$")) {
+                //Keep the operators, e.g. $in or $exists, as they determine if an index can be used
+                BsonDocument operators = new BsonDocument();
+                value.asDocument().keySet().stream()
+                        .sorted()
+                        .forEach(operator -> operators.put(operator, operator.startsWith("$") ?
+                                new BsonInt32(1) : new BsonString("?")));
+                sorted.put(key, operators);
+            } else {
+                sorted.put(key, new BsonInt32(1));
+            }
+        });
+        BsonDocument shape = new BsonDocument();
+        sorted.forEach(shape::put);
+        return shape;
+    }
+
+    /**
+     * A filter can use an index if one of its fields is the leading key of an index, if one of the branches of an
+     * $and can use an index or if all the branches of an $or can use an index. A $text search always uses the
+     * text index.
+     */
+    static boolean covered(BsonDocument shape, Set<String> leadingKeys) {
+        return shape.entrySet().stream().anyMatch(entry -> {
+            String key = entry.getKey();
+            BsonValue value = entry.getValue();
+            switch (key) {
+                case "$text":
+                    return true;
+                case "$and":
+                    return value.isArray() &&
+                            value.asArray().stream().anyMatch(branch -> covered(branch.asDocument(), leadingKeys));
+                case "$or":
+                    return value.isArray() && !value.asArray().isEmpty() &&
+                            value.asArray().stream().allMatch(branch -> covered(branch.asDocument(), leadingKeys));
+                default:
+                    return !key.startsWith("$") && leadingKeys.contains(key) && usesIndex(value);
+            }
+        });
+    }
+
+    private static boolean usesIndex(BsonValue value) {
+        //Negations do not narrow down an index scan
+        return !value.isDocument() || value.asDocument().keySet().stream()
+                .noneMatch(operator -> Stream.of("$ne", "$nin", "$not").anyMatch(operator::equals));
+    }
+
+    /**
+     * Indexes with a collation can only be used by queries with the same collation
+     */
+    private static Set<String> leadingKeys(List<Document> indexes, String collation) {
+        return indexes.stream()
+                .filter(index -> {
+                    Document indexCollation = index.get("collation", Document.class);
+                    return Objects.equals(indexCollation == null ? null : indexCollation.getString("locale"),
+                            collation);
+                })
+                .map(index -> index.get("key", Document.class))
+                .filter(key -> key != null && !key.isEmpty())
+                .map(key -> key.keySet().iterator().next())
+                .collect(Collectors.toSet());
+    }
+
+    private static class QueryShape {
+
+        private final String collection;
+        private final BsonDocument filter;
+        private final String collation;
+        private final LongAdder count = new LongAdder();
+
+        private QueryShape(String collection, BsonDocument filter, String collation) {
+            this.collection = collection;
+            this.filter = filter;
+            this.collation = collation;
+        }
+    }
+}
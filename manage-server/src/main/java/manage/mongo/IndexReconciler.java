@@ -0,0 +1,141 @@
+package manage.mongo;
+
+import manage.conf.IndexConfiguration;
+import manage.conf.MetaDataAutoConfiguration;
+import manage.model.IndexDrift;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static manage.mongo.MongoChangelog.REVISION_POSTFIX;
+
+/**
+ * Creates the indexes declared in the 'indexes' section of the schemas on the collection of the schema and on the
+ * revision collection. The fields of a declared index are relative to the 'data' of the entities and only indexes of
+ * type 'field' are supported. Indexes on the revision collections are never unique, as all revisions of an entity
+ * share the same data.
+ */
+@Component
+public class IndexReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexReconciler.class);
+
+    static final String FIELD_INDEX_TYPE = "field";
+
+    private final MongoTemplate mongoTemplate;
+    private final MetaDataAutoConfiguration metaDataAutoConfiguration;
+
+    @Autowired
+    public IndexReconciler(MongoTemplate mongoTemplate, MetaDataAutoConfiguration metaDataAutoConfiguration) {
+        this.mongoTemplate = mongoTemplate;
+        this.metaDataAutoConfiguration = metaDataAutoConfiguration;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileAfterStartup() {
+        List<IndexDrift> drift = this.reconcile();
+        LOG.info("Reconciled the schema indexes, {} index(es) created or drifted", drift.size());
+    }
+
+    /**
+     * Creates the missing indexes and returns what was created and the declared indexes that could not be created
+     */
+    public List<IndexDrift> reconcile() {
+        return this.doReconcile(true);
+    }
+
+    /**
+     * Returns the declared indexes that are missing or conflict with an existing index without changing anything
+     */
+    public List<IndexDrift> drift() {
+        return this.doReconcile(false);
+    }
+
+    private List<IndexDrift> doReconcile(boolean create) {
+        return metaDataAutoConfiguration.schemaNames().stream()
+                .sorted()
+                .flatMap(type -> metaDataAutoConfiguration.indexConfigurations(type).stream()
+                        .flatMap(indexConfiguration -> Stream.of(
+                                this.reconcile(type, indexConfiguration, indexConfiguration.isUnique(), create),
+                                this.reconcile(type.concat(REVISION_POSTFIX), indexConfiguration, false, create))))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(toList());
+    }
+
+    private Optional<IndexDrift> reconcile(String collection, IndexConfiguration indexConfiguration, boolean unique,
+                                           boolean create) {
+        String name = indexConfiguration.getName();
+        List<String> keys = indexConfiguration.getFields().stream()
+                .map(field -> "data.".concat(field))
+                .collect(toList());
+        if (!FIELD_INDEX_TYPE.equals(indexConfiguration.getType())) {
+            return this.drift(collection, name, keys, IndexDrift.Status.UNSUPPORTED,
+                    String.format("Index type %s is not supported", indexConfiguration.getType()));
+        }
+        IndexOperations indexOperations = mongoTemplate.indexOps(collection);
+        List<IndexInfo> indexInfos = indexOperations.getIndexInfo();
+
+        Optional<IndexInfo> sameKeys = indexInfos.stream()
+                .filter(indexInfo -> keys.equals(keys(indexInfo)))
+                .findFirst();
+        if (sameKeys.isPresent()) {
+            IndexInfo indexInfo = sameKeys.get();
+            //An index on the same keys with an other name is fine, but it must honour the declared uniqueness
+            return indexInfo.isUnique() == unique ? Optional.empty() :
+                    this.drift(collection, name, keys, IndexDrift.Status.CONFLICT,
+                            String.format("Index %s on the same fields is %sunique", indexInfo.getName(),
+                                    indexInfo.isUnique() ? "" : "not "));
+        }
+        Optional<IndexInfo> sameName = indexInfos.stream()
+                .filter(indexInfo -> indexInfo.getName().equals(name))
+                .findFirst();
+        if (sameName.isPresent()) {
+            return this.drift(collection, name, keys, IndexDrift.Status.CONFLICT,
+                    String.format("Index %s exists on the fields %s", name, keys(sameName.get())));
+        }
+        if (!create) {
+            return this.drift(collection, name, keys, IndexDrift.Status.MISSING, "Index does not exist");
+        }
+        Index index = new Index().named(name).background();
+        keys.forEach(key -> index.on(key, Sort.Direction.ASC));
+        if (unique) {
+            index.unique();
+        }
+        try {
+            indexOperations.ensureIndex(index);
+            return this.drift(collection, name, keys, IndexDrift.Status.CREATED, "Index created");
+        } catch (RuntimeException e) {
+            return this.drift(collection, name, keys, IndexDrift.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private Optional<IndexDrift> drift(String collection, String name, List<String> keys, IndexDrift.Status status,
+                                       String message) {
+        if (status.equals(IndexDrift.Status.CREATED)) {
+            LOG.info("Created index {} on {} for the fields {}", name, collection, keys);
+        } else {
+            LOG.warn("Index {} on {} for the fields {}: {} - {}", name, collection, keys, status, message);
+        }
+        return Optional.of(new IndexDrift(collection, name, new ArrayList<>(keys), status, message));
+    }
+
+    private static List<String> keys(IndexInfo indexInfo) {
+        return indexInfo.getIndexFields().stream().map(IndexField::getKey).collect(toList());
+    }
+}
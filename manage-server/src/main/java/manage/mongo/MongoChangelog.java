@@ -9,6 +9,7 @@ import lombok.SneakyThrows;
 import manage.conf.MetaDataAutoConfiguration;
 import manage.model.EntityType;
 import manage.model.MetaData;
+import manage.model.Push;
 import manage.model.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -217,6 +218,36 @@ public class MongoChangelog {
         mongoTemplate.indexOps(schema).ensureIndex(textIndexDefinition);
     }
 
+    @ChangeSet(order = "013", id = "addReferenceIndexes", author = "agent@local")
+    public void addReferenceIndexes(MongockTemplate mongoTemplate, MetaDataAutoConfiguration metaDataAutoConfiguration) {
+        List<String> references = Arrays.asList("stepupEntities", "mfaEntities", "disableConsent", "allowedResourceServers");
+        Stream.of(EntityType.values()).forEach(entityType -> {
+            Map<String, Object> properties = (Map<String, Object>) metaDataAutoConfiguration
+                    .schemaRepresentation(entityType).get("properties");
+            IndexOperations indexOps = mongoTemplate.indexOps(entityType.getType());
+            references.stream()
+                    .filter(properties::containsKey)
+                    .forEach(reference -> indexOps.ensureIndex(
+                            new Index("data.".concat(reference).concat(".name"), Sort.Direction.ASC)));
+        });
+    }
+
+    @ChangeSet(order = "014", id = "changeRequestCreatedIndex", author = "agent@local")
+    public void changeRequestCreatedIndex(MongockTemplate mongoTemplate) {
+        Stream.of(EntityType.values()).forEach(entityType -> {
+            mongoTemplate.indexOps(entityType.getType().concat(CHANGE_REQUEST_POSTFIX))
+                    .ensureIndex(new Index("created", Sort.Direction.DESC).on("_id", Sort.Direction.ASC));
+        });
+    }
+
+    @ChangeSet(order = "015", id = "pushesIndex", author = "agent@local")
+    public void pushesIndex(MongockTemplate mongoTemplate) {
+        //The last push and the last full push are looked up for every push, the pushes are pruned by creation date
+        IndexOperations indexOps = mongoTemplate.indexOps(Push.class);
+        indexOps.ensureIndex(new Index("full", Sort.Direction.ASC).on("created", Sort.Direction.DESC));
+        indexOps.ensureIndex(new Index("created", Sort.Direction.DESC));
+    }
+
     private void migrateRelayingPartyToResourceServer(Map<String, Map<String, Object>> properties, List<Pattern> patterns, Map<String, Object> simpleProperties, MetaData rs) {
         rs.setType(EntityType.RS.getType());
         rs.getData().entrySet().removeIf(entry -> !properties.containsKey(entry.getKey()));
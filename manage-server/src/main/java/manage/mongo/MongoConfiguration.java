@@ -4,6 +4,8 @@ import com.github.cloudyrock.mongock.driver.mongodb.springdata.v3.SpringDataMong
 import com.github.cloudyrock.spring.v5.MongockSpring5;
 import manage.conf.MetaDataAutoConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -37,6 +39,12 @@ public class MongoConfiguration {
                 .buildApplicationRunner();
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "index_advisor.enabled", havingValue = "true")
+    public MongoClientSettingsBuilderCustomizer indexAdvisorCustomizer(IndexAdvisor indexAdvisor) {
+        return builder -> builder.addCommandListener(indexAdvisor);
+    }
+
     @Bean
     public MongoTransactionManager transactionManager(MongoTemplate mongoTemplate) {
         return new MongoTransactionManager(mongoTemplate.getMongoDatabaseFactory());
@@ -0,0 +1,252 @@
+package manage.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * In-memory trigram index per collection over the entityid and the names, display names, keywords and organization
+ * names in all the supported languages.
+ */
+@Component
+@SuppressWarnings("unchecked")
+public class AutoCompleteIndex extends CollectionIndex<AutoCompleteIndex.TrigramIndex> {
+
+    private final List<String> supportedLanguages;
+    private final List<String> searchFields;
+
+    public AutoCompleteIndex(MongoTemplate mongoTemplate,
+                             @Value("${product.supported_languages}") String supportedLanguages) {
+        super(mongoTemplate);
+        this.supportedLanguages = Stream.of(supportedLanguages.split(",")).map(String::trim).collect(toList());
+        this.searchFields = this.supportedLanguages.stream()
+                .flatMap(lang -> Stream.of("name:", "displayName:", "keywords:", "OrganizationName:")
+                        .map(field -> field + lang))
+                .collect(toList());
+    }
+
+    /**
+     * Returns all the documents of the collection for the search '*'. Otherwise every space separated part of the
+     * search must be a case-insensitive substring of one of the search fields and the best matches are returned.
+     */
+    public List<Map> search(String type, String search, int limit) {
+        TrigramIndex index = this.index(type);
+        if ("*".equals(search)) {
+            return index.all();
+        }
+        List<String> parts = Stream.of(search.split(" "))
+                .map(part -> part.toLowerCase(Locale.ROOT))
+                .collect(toList());
+        return index.search(parts, limit);
+    }
+
+    @Override
+    protected Query loadQuery() {
+        Query query = new Query();
+        Field fields = query.fields();
+        fields.include("version").include("type").include("data.state").include("data.entityid").include("data.notes");
+        searchFields.forEach(field -> fields.include("data.metaDataFields." + field));
+        return query;
+    }
+
+    @Override
+    protected TrigramIndex newIndex() {
+        return new TrigramIndex();
+    }
+
+    @Override
+    protected void put(TrigramIndex index, Map<String, Object> document) {
+        index.put(this.entry(document));
+    }
+
+    @Override
+    protected void remove(TrigramIndex index, String id) {
+        index.remove(id);
+    }
+
+    private TrigramIndex.Entry entry(Map<String, Object> document) {
+        Map<String, Object> data = (Map<String, Object>) document.getOrDefault("data", Collections.emptyMap());
+        Map<String, Object> metaDataFields =
+                (Map<String, Object>) data.getOrDefault("metaDataFields", Collections.emptyMap());
+
+        List<String> values = new ArrayList<>();
+        Object entityId = data.get("entityid");
+        if (entityId instanceof String) {
+            values.add((String) entityId);
+        }
+        searchFields.stream()
+                .map(metaDataFields::get)
+                .filter(value -> value instanceof String)
+                .forEach(value -> values.add((String) value));
+
+        //The same fields as the former autocomplete query returned
+        Map<String, Object> resultData = new LinkedHashMap<>();
+        Stream.of("state", "entityid", "notes")
+                .filter(data::containsKey)
+                .forEach(key -> resultData.put(key, data.get(key)));
+        Map<String, Object> resultMetaDataFields = new LinkedHashMap<>();
+        supportedLanguages.forEach(lang -> Stream.of("name:" + lang, "OrganizationName:" + lang)
+                .filter(metaDataFields::containsKey)
+                .forEach(key -> resultMetaDataFields.put(key, metaDataFields.get(key))));
+        if (!resultMetaDataFields.isEmpty()) {
+            resultData.put("metaDataFields", resultMetaDataFields);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("_id", document.get("_id"));
+        Stream.of("version", "type")
+                .filter(document::containsKey)
+                .forEach(key -> result.put(key, document.get(key)));
+        result.put("data", resultData);
+
+        Object version = document.get("version");
+        return new TrigramIndex.Entry(String.valueOf(document.get("_id")),
+                version instanceof Number ? ((Number) version).longValue() : null, values, result);
+    }
+
+    static class TrigramIndex {
+
+        private final Map<String, Entry> entries = new LinkedHashMap<>();
+        private final Map<String, Set<String>> postings = new HashMap<>();
+
+        synchronized void put(Entry entry) {
+            Entry existing = entries.get(entry.id);
+            //Mapping events of concurrent saves might arrive out of order
+            if (existing != null && existing.version != null && entry.version != null &&
+                    existing.version > entry.version) {
+                return;
+            }
+            this.remove(entry.id);
+            entries.put(entry.id, entry);
+            entry.trigrams().forEach(trigram ->
+                    postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(entry.id));
+        }
+
+        synchronized void remove(String id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                entry.trigrams().forEach(trigram -> {
+                    Set<String> ids = postings.get(trigram);
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(trigram);
+                    }
+                });
+            }
+        }
+
+        synchronized List<Map> all() {
+            return entries.values().stream().map(entry -> entry.result).collect(toList());
+        }
+
+        synchronized List<Map> search(List<String> parts, int limit) {
+            Set<String> candidates = null;
+            for (String part : parts) {
+                for (String trigram : trigrams(part)) {
+                    Set<String> ids = postings.getOrDefault(trigram, Collections.emptySet());
+                    if (candidates == null) {
+                        candidates = new HashSet<>(ids);
+                    } else {
+                        candidates.retainAll(ids);
+                    }
+                    if (candidates.isEmpty()) {
+                        return Collections.emptyList();
+                    }
+                }
+            }
+            //Parts shorter than a trigram can not narrow down the candidates
+            Stream<Entry> matches = candidates == null ?
+                    entries.values().stream() : candidates.stream().map(entries::get);
+            return matches
+                    .map(entry -> new Match(entry, entry.score(parts)))
+                    .filter(match -> match.score > 0)
+                    .sorted(Comparator.comparingInt((Match match) -> match.score).reversed()
+                            .thenComparing(match -> match.entry.values.isEmpty() ? "" : match.entry.values.get(0)))
+                    .limit(limit)
+                    .map(match -> match.entry.result)
+                    .collect(toList());
+        }
+
+        private static Set<String> trigrams(String value) {
+            Set<String> trigrams = new HashSet<>();
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                trigrams.add(value.substring(i, i + 3));
+            }
+            return trigrams;
+        }
+
+        static class Entry {
+
+            private final String id;
+            private final Long version;
+            private final List<String> values;
+            private final Map<String, Object> result;
+
+            Entry(String id, Long version, List<String> values, Map<String, Object> result) {
+                this.id = id;
+                this.version = version;
+                this.values = values.stream().map(value -> value.toLowerCase(Locale.ROOT)).collect(toList());
+                this.result = result;
+            }
+
+            private Set<String> trigrams() {
+                Set<String> trigrams = new HashSet<>();
+                values.forEach(value -> trigrams.addAll(TrigramIndex.trigrams(value)));
+                return trigrams;
+            }
+
+            /**
+             * Zero if one of the parts does not match any value, otherwise the sum of the best score per part: an
+             * exact match scores higher than a prefix match, which scores higher than a match at the start of a word.
+             */
+            private int score(List<String> parts) {
+                int score = 0;
+                for (String part : parts) {
+                    int best = values.stream().mapToInt(value -> score(value, part)).max().orElse(0);
+                    if (best == 0) {
+                        return 0;
+                    }
+                    score += best;
+                }
+                return score;
+            }
+
+            private static int score(String value, String part) {
+                int index = value.indexOf(part);
+                if (index < 0) {
+                    return 0;
+                }
+                if (index == 0) {
+                    return value.length() == part.length() ? 4 : 3;
+                }
+                return Character.isLetterOrDigit(value.charAt(index - 1)) ? 1 : 2;
+            }
+        }
+
+        private static class Match {
+
+            private final Entry entry;
+            private final int score;
+
+            private Match(Entry entry, int score) {
+                this.entry = entry;
+                this.score = score;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package manage.repository;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for in-memory indexes per collection. The index of a collection is loaded on first use and kept up to
+ * date with the saved and deleted documents. Deletes by query and writes that do not publish a mapping event - e.g.
+ * bulk updates - invalidate the index of the collection. The writes of other nodes, scripts and imports are only
+ * picked up by the periodic reload of the loaded indexes.
+ */
+@SuppressWarnings("unchecked")
+public abstract class CollectionIndex<I> extends AbstractMongoEventListener<Object> {
+
+    protected final MongoTemplate mongoTemplate;
+
+    private final Map<String, I> indexes = new HashMap<>();
+    private final Map<String, Long> generations = new HashMap<>();
+
+    protected CollectionIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * The query, including the projection, used to load all the documents of a collection
+     */
+    protected abstract Query loadQuery();
+
+    protected abstract I newIndex();
+
+    protected abstract void put(I index, Map<String, Object> document);
+
+    protected abstract void remove(I index, String id);
+
+    public synchronized void invalidate(String type) {
+        indexes.remove(type);
+        generations.merge(type, 1L, Long::sum);
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Document document = event.getDocument();
+        I index = this.changed(event.getCollectionName());
+        if (index != null && document != null) {
+            this.put(index, document);
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Document query = event.getDocument();
+        Object id = query == null ? null : query.get("_id");
+        if (id instanceof String) {
+            I index = this.changed(event.getCollectionName());
+            if (index != null) {
+                this.remove(index, (String) id);
+            }
+        } else {
+            this.invalidate(event.getCollectionName());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${in_memory_index.reload_seconds}",
+            initialDelayString = "${in_memory_index.reload_seconds}", timeUnit = TimeUnit.SECONDS)
+    public void reload() {
+        Set<String> types;
+        synchronized (this) {
+            types = new HashSet<>(indexes.keySet());
+        }
+        types.forEach(this::load);
+    }
+
+    protected I index(String type) {
+        synchronized (this) {
+            I index = indexes.get(type);
+            if (index != null) {
+                return index;
+            }
+        }
+        return this.load(type);
+    }
+
+    private I load(String type) {
+        long loadedGeneration;
+        synchronized (this) {
+            loadedGeneration = generations.getOrDefault(type, 0L);
+        }
+        I index = this.newIndex();
+        mongoTemplate.find(this.loadQuery(), Map.class, type).forEach(document -> this.put(index, document));
+        synchronized (this) {
+            //Do not cache the index if the collection has changed while loading
+            if (loadedGeneration == generations.getOrDefault(type, 0L)) {
+                indexes.put(type, index);
+            }
+        }
+        return index;
+    }
+
+    private synchronized I changed(String type) {
+        generations.merge(type, 1L, Long::sum);
+        return indexes.get(type);
+    }
+}
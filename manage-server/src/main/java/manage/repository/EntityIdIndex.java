@@ -0,0 +1,65 @@
+package manage.repository;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory set per collection of the identifiers of the entities, used for the existence checks of references. The
+ * index only follows the writes of this node until it is reloaded, so an identifier that is not in the index is not
+ * proof that the entity does not exist.
+ */
+@Component
+public class EntityIdIndex extends CollectionIndex<EntityIdIndex.EntityIds> {
+
+    public EntityIdIndex(MongoTemplate mongoTemplate) {
+        super(mongoTemplate);
+    }
+
+    public boolean existsById(String type, String id) {
+        return this.index(type).existsById(id);
+    }
+
+    @Override
+    protected Query loadQuery() {
+        Query query = new Query();
+        query.fields().include("_id");
+        return query;
+    }
+
+    @Override
+    protected EntityIds newIndex() {
+        return new EntityIds();
+    }
+
+    @Override
+    protected void put(EntityIds index, Map<String, Object> document) {
+        index.put(String.valueOf(document.get("_id")));
+    }
+
+    @Override
+    protected void remove(EntityIds index, String id) {
+        index.remove(id);
+    }
+
+    static class EntityIds {
+
+        private final Set<String> ids = new HashSet<>();
+
+        synchronized void put(String id) {
+            ids.add(id);
+        }
+
+        synchronized void remove(String id) {
+            ids.remove(id);
+        }
+
+        synchronized boolean existsById(String id) {
+            return ids.contains(id);
+        }
+    }
+}
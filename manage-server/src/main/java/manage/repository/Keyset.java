@@ -0,0 +1,266 @@
+package manage.repository;
+
+import manage.exception.InvalidPageTokenException;
+import manage.exception.InvalidSortException;
+import manage.model.MetaData;
+import manage.model.MetaDataChangeRequest;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Keyset pagination of list queries. The results are sorted by _id, by entityid or by created descending - and _id
+ * for equal entityids or creation dates - and the next page starts after the sort key of the last result of the
+ * current page. The sort key is encoded in an opaque page token. An unpaged keyset returns all the results in the
+ * natural order, like before.
+ */
+public class Keyset {
+
+    public enum SortKey {
+        ID("id", "_id"), ENTITYID("entityid", "data.entityid"), CREATED("created", "created");
+
+        private final String name;
+        private final String field;
+
+        SortKey(String name, String field) {
+            this.name = name;
+            this.field = field;
+        }
+
+        static SortKey fromName(String name) {
+            return Stream.of(values()).filter(sortKey -> sortKey.name.equals(name)).findFirst()
+                    .orElseThrow(() -> new InvalidSortException(name));
+        }
+    }
+
+    private static final Keyset UNPAGED = new Keyset(null, 0, null, null);
+
+    //The sort value in a page token is prefixed, so a missing sort value is not confused with the value 'null'
+    private static final String VALUE_PREFIX = "v";
+    private static final String NULL_VALUE = "-";
+
+    private final SortKey sortKey;
+    private final int pageSize;
+    private final String afterId;
+    private final String afterValue;
+
+    private Keyset(SortKey sortKey, int pageSize, String afterId, String afterValue) {
+        this.sortKey = sortKey;
+        this.pageSize = pageSize;
+        this.afterId = afterId;
+        this.afterValue = afterValue;
+    }
+
+    public static Keyset unpaged() {
+        return UNPAGED;
+    }
+
+    /**
+     * Unpaged - all the results in the natural order - unless a page size, page token or sort is requested. Paged
+     * results are pages of at most the maximum page size, which is also the default page size of a paged request. The
+     * sort of the page token takes precedence over the requested sort.
+     */
+    public static Keyset of(String sort, Integer pageSize, String pageToken, int maxPageSize) {
+        if (!StringUtils.hasText(sort) && pageSize == null && !StringUtils.hasText(pageToken)) {
+            return UNPAGED;
+        }
+        SortKey sortKey = StringUtils.hasText(sort) ? SortKey.fromName(sort) : SortKey.ID;
+        //Only the aggregated change requests are sorted by their creation date
+        if (sortKey.equals(SortKey.CREATED)) {
+            throw new InvalidSortException(sort);
+        }
+        return of(sortKey, false, pageSize, pageToken, maxPageSize);
+    }
+
+    /**
+     * Like {@link #of(String, Integer, String, int)} for lists with only one sort, a page token of an other sort is
+     * invalid.
+     */
+    public static Keyset of(SortKey sortKey, Integer pageSize, String pageToken, int maxPageSize) {
+        if (pageSize == null && !StringUtils.hasText(pageToken)) {
+            return UNPAGED;
+        }
+        return of(sortKey, true, pageSize, pageToken, maxPageSize);
+    }
+
+    private static Keyset of(SortKey sort, boolean fixedSort, Integer pageSize, String pageToken, int maxPageSize) {
+        int size = pageSize == null ? maxPageSize : Math.max(1, Math.min(pageSize, maxPageSize));
+        if (!StringUtils.hasText(pageToken)) {
+            return new Keyset(sort, size, null, null);
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8)
+                    .split(":", 3);
+            SortKey sortKey = SortKey.fromName(parts[0]);
+            boolean otherSort = fixedSort ? !sortKey.equals(sort) : sortKey.equals(SortKey.CREATED);
+            if (otherSort || (!sortKey.equals(SortKey.ID) && parts.length < 3)) {
+                throw new IllegalArgumentException();
+            }
+            String afterValue = sortKey.equals(SortKey.ID) ? null : decodeValue(parts[2]);
+            if (sortKey.equals(SortKey.CREATED) && afterValue != null) {
+                Long.parseLong(afterValue);
+            }
+            return new Keyset(sortKey, size, parts[1], afterValue);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | InvalidSortException e) {
+            throw new InvalidPageTokenException(pageToken);
+        }
+    }
+
+    public boolean isPaged() {
+        return sortKey != null;
+    }
+
+    /**
+     * Returns a copy of the query that only selects the documents after the keyset, sorted by the sort key and limited
+     * to one more than the page size to detect the last page.
+     */
+    public Query apply(Query query) {
+        if (!this.isPaged()) {
+            return query;
+        }
+        Document queryObject = query.getQueryObject();
+        Document after = this.after();
+        if (after != null) {
+            //Wrapped, as the query might already contain top-level operators like $and or $or
+            List<Document> conditions = new ArrayList<>();
+            conditions.add(queryObject);
+            conditions.add(after);
+            queryObject = new Document("$and", conditions);
+        }
+        return new BasicQuery(queryObject, query.getFieldsObject()).with(this.sort()).limit(pageSize + 1);
+    }
+
+    /**
+     * The aggregation stages that select the documents after the keyset, sort by the sort key and limit to one more
+     * than the page size. Empty for an unpaged keyset.
+     */
+    public List<Document> stages() {
+        List<Document> stages = new ArrayList<>();
+        if (!this.isPaged()) {
+            return stages;
+        }
+        Document after = this.after();
+        if (after != null) {
+            stages.add(new Document("$match", after));
+        }
+        Document sort = new Document();
+        this.sort().forEach(order -> sort.put(order.getProperty(), order.isAscending() ? 1 : -1));
+        stages.add(new Document("$sort", sort));
+        stages.add(new Document("$limit", pageSize + 1));
+        return stages;
+    }
+
+    private Document after() {
+        if (afterId == null) {
+            return null;
+        }
+        if (sortKey.equals(SortKey.ID)) {
+            return Criteria.where("_id").gt(afterId).getCriteriaObject();
+        }
+        //Missing and null values sort before all other values, so they come last in the descending sort on created
+        Criteria sameValueAfterId = Criteria.where(sortKey.field).is(afterValue == null ? null :
+                this.value()).and("_id").gt(afterId);
+        Criteria after;
+        if (sortKey.equals(SortKey.CREATED)) {
+            after = afterValue == null ? sameValueAfterId : new Criteria().orOperator(
+                    Criteria.where(sortKey.field).lt(this.value()),
+                    Criteria.where(sortKey.field).is(null),
+                    sameValueAfterId);
+        } else {
+            after = afterValue == null ? new Criteria().orOperator(
+                    sameValueAfterId,
+                    Criteria.where(sortKey.field).ne(null)) : new Criteria().orOperator(
+                    Criteria.where(sortKey.field).gt(this.value()),
+                    sameValueAfterId);
+        }
+        return after.getCriteriaObject();
+    }
+
+    private Object value() {
+        return sortKey.equals(SortKey.CREATED) ? new Date(Long.parseLong(afterValue)) : afterValue;
+    }
+
+    private Sort sort() {
+        switch (sortKey) {
+            case ID:
+                return Sort.by("_id");
+            case CREATED:
+                return Sort.by(Sort.Order.desc(sortKey.field), Sort.Order.asc("_id"));
+            default:
+                return Sort.by(sortKey.field, "_id");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<Map> pageOfDocuments(List<Map> documents) {
+        return this.page(documents, document -> String.valueOf(document.get("_id")), document ->
+                (String) ((Map<String, Object>) document.getOrDefault("data", Collections.emptyMap())).get("entityid"));
+    }
+
+    public Page<MetaData> pageOfMetaData(List<MetaData> metaData) {
+        return this.page(metaData, MetaData::getId, m -> (String) m.getData().get("entityid"));
+    }
+
+    /**
+     * The change requests of an aggregation, which are already sorted by the sort stage of this keyset
+     */
+    public Page<MetaDataChangeRequest> pageOfChangeRequests(List<MetaDataChangeRequest> changeRequests) {
+        return this.cutOff(changeRequests, MetaDataChangeRequest::getId, changeRequest ->
+                changeRequest.getCreated() == null ? null : String.valueOf(changeRequest.getCreated().toEpochMilli()));
+    }
+
+    /**
+     * Sorts - results might be merged from more than one collection - and cuts off the results of the page.
+     */
+    public <T> Page<T> page(List<T> results, Function<T, String> id, Function<T, String> entityId) {
+        if (!this.isPaged()) {
+            return new Page<>(results, null);
+        }
+        Comparator<T> comparator = sortKey.equals(SortKey.ID) ? Comparator.comparing(id) :
+                Comparator.comparing(entityId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                        .thenComparing(id);
+        List<T> sorted = new ArrayList<>(results);
+        sorted.sort(comparator);
+        return this.cutOff(sorted, id, entityId);
+    }
+
+    private <T> Page<T> cutOff(List<T> sorted, Function<T, String> id, Function<T, String> value) {
+        if (!this.isPaged() || sorted.size() <= pageSize) {
+            return new Page<>(sorted, null);
+        }
+        List<T> page = new ArrayList<>(sorted.subList(0, pageSize));
+        T last = page.get(pageSize - 1);
+        String token = sortKey.equals(SortKey.ID) ? String.join(":", sortKey.name, id.apply(last)) :
+                String.join(":", sortKey.name, id.apply(last), encodeValue(value.apply(last)));
+        return new Page<>(page, Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String encodeValue(String value) {
+        return value == null ? NULL_VALUE : VALUE_PREFIX.concat(value);
+    }
+
+    private static String decodeValue(String value) {
+        if (value.equals(NULL_VALUE)) {
+            return null;
+        }
+        if (!value.startsWith(VALUE_PREFIX)) {
+            throw new IllegalArgumentException();
+        }
+        return value.substring(VALUE_PREFIX.length());
+    }
+}
@@ -3,24 +3,27 @@ package manage.repository;
 import manage.model.EntityType;
 import manage.model.MetaData;
 import manage.model.MetaDataChangeRequest;
-import manage.model.StatsEntry;
 import manage.mongo.Sequence;
 import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.data.mongodb.core.query.*;
+import org.springframework.data.util.StreamUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
-import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static manage.mongo.MongoChangelog.CHANGE_REQUEST_POSTFIX;
 import static manage.mongo.MongoChangelog.REVISION_POSTFIX;
 
@@ -32,16 +35,24 @@ import static manage.mongo.MongoChangelog.REVISION_POSTFIX;
 public class MetaDataRepository {
 
     private static final int AUTOCOMPLETE_LIMIT = 16;
+    private static final int PROPAGATION_ATTEMPTS = 5;
+    private static final String PROPAGATION_USER = "System";
 
     private final MongoTemplate mongoTemplate;
+    private final AutoCompleteIndex autoCompleteIndex;
+    private final EntityIdIndex entityIdIndex;
     private final List<String> supportedLanguages;
 
     private final FindAndModifyOptions options = FindAndModifyOptions.options().returnNew(true);
 
     @Autowired
     public MetaDataRepository(MongoTemplate mongoTemplate,
+                              AutoCompleteIndex autoCompleteIndex,
+                              EntityIdIndex entityIdIndex,
                               @Value("${product.supported_languages}") String supportedLanguages) {
         this.mongoTemplate = mongoTemplate;
+        this.autoCompleteIndex = autoCompleteIndex;
+        this.entityIdIndex = entityIdIndex;
         this.supportedLanguages = Stream.of(supportedLanguages.split(",")).map(String::trim).collect(toList());
     }
 
@@ -67,9 +78,9 @@ public class MetaDataRepository {
         mongoTemplate.remove(metaData, metaData.getType());
     }
 
-    public List<MetaData> revisions(String type, String parentId) {
+    public Page<MetaData> revisions(String type, String parentId, Keyset keyset) {
         Query query = new Query(Criteria.where("revision.parentId").is(parentId));
-        return mongoTemplate.find(query, MetaData.class, type);
+        return keyset.pageOfMetaData(mongoTemplate.find(keyset.apply(query), MetaData.class, type));
     }
 
     public List<MetaDataChangeRequest> changeRequests(String metaDataId, String collectionName) {
@@ -77,21 +88,58 @@ public class MetaDataRepository {
         return mongoTemplate.find(query, MetaDataChangeRequest.class, collectionName);
     }
 
-    public List<MetaDataChangeRequest> allChangeRequests() {
-        List<MetaDataChangeRequest> results = new ArrayList<>();
-        Stream.of(EntityType.values()).forEach(entityType -> {
-            results.addAll(mongoTemplate.findAll(MetaDataChangeRequest.class, entityType.getType().concat(CHANGE_REQUEST_POSTFIX)));
-        });
-        return results;
+    /**
+     * The change requests of all types, most recent first and without the path updates and the audit data - except
+     * for the name of the user - in one aggregation over all the change request collections.
+     */
+    public Page<MetaDataChangeRequest> allChangeRequests(Keyset keyset) {
+        Document projection = new Document();
+        Stream.of("metaDataId", "type", "note", "incrementalChange", "pathUpdateType", "created", "metaDataSummary",
+                        "auditData.userName")
+                .forEach(field -> projection.put(field, 1));
+        List<Document> stages = keyset.isPaged() ? keyset.stages() :
+                Collections.singletonList(new Document("$sort", new Document("created", -1).append("_id", 1)));
+
+        List<Document> collectionPipeline = new ArrayList<>(stages);
+        collectionPipeline.add(new Document("$project", projection));
+        List<Document> pipeline = new ArrayList<>(collectionPipeline);
+        changeRequestCollections().skip(1).forEach(collection -> pipeline.add(new Document("$unionWith",
+                new Document("coll", collection).append("pipeline", collectionPipeline))));
+        //Sort and cut off the merged results of the collections again
+        stages.stream()
+                .filter(stage -> !stage.containsKey("$match"))
+                .forEach(pipeline::add);
+        List<MetaDataChangeRequest> changeRequests = this.aggregate(pipeline,
+                changeRequestCollections().findFirst().get(), MetaDataChangeRequest.class);
+        return keyset.pageOfChangeRequests(changeRequests);
+    }
+
+    /**
+     * The number of change requests of all types in one aggregation over all the change request collections.
+     */
+    public long openChangeRequests() {
+        Document count = new Document("$count", "count");
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(count);
+        changeRequestCollections().skip(1).forEach(collection -> pipeline.add(new Document("$unionWith",
+                new Document("coll", collection).append("pipeline", Collections.singletonList(count)))));
+        pipeline.add(new Document("$group", new Document("_id", null).append("count", new Document("$sum", "$count"))));
+        return this.aggregate(pipeline, changeRequestCollections().findFirst().get(), Document.class).stream()
+                .findFirst()
+                .map(result -> ((Number) result.get("count")).longValue())
+                .orElse(0L);
     }
 
-    public long openChangeRequests() {
-        AtomicLong count = new AtomicLong(0);
-        Query query = new Query();
-        Stream.of(EntityType.values()).forEach(entityType -> {
-            count.addAndGet(mongoTemplate.count(query, entityType.getType().concat(CHANGE_REQUEST_POSTFIX)));
-        });
-        return count.get();
+    private Stream<String> changeRequestCollections() {
+        return Stream.of(EntityType.values()).map(entityType -> entityType.getType().concat(CHANGE_REQUEST_POSTFIX));
+    }
+
+    private <T> List<T> aggregate(List<Document> pipeline, String collection, Class<T> outputType) {
+        List<AggregationOperation> operations = pipeline.stream()
+                .map(stage -> (AggregationOperation) context -> stage)
+                .collect(toList());
+        return mongoTemplate.aggregate(Aggregation.newAggregation(operations), collection, outputType)
+                .getMappedResults();
     }
 
     public void update(MetaData metaData) {
@@ -99,33 +147,114 @@ public class MetaDataRepository {
         mongoTemplate.save(metaData, metaData.getType());
     }
 
+    public long countReferences(String type, String property, String entityId) {
+        return mongoTemplate.count(referencesQuery(property, entityId), type);
+    }
+
+    /**
+     * Renames the references by name to the entityid in the property of all entities of the type, or removes them if
+     * the new entityid is null. The entities are updated server-side in one bulk write, guarded by the version that was
+     * read, and the versions that were read are inserted as revisions for the updates that matched. Entities that were
+     * changed in the meantime are read again and retried until they no longer reference the entityid. Returns the
+     * number of updated entities.
+     */
+    public long propagateReference(String type, String property, String entityId, String newEntityId,
+                                   String revisionNote) {
+        List<MetaData> references = mongoTemplate.find(referencesQuery(property, entityId), MetaData.class, type);
+        return this.propagateReference(type, property, entityId, newEntityId, revisionNote, references);
+    }
+
+    long propagateReference(String type, String property, String entityId, String newEntityId, String revisionNote,
+                            List<MetaData> references) {
+        long updated = 0;
+        try {
+            for (int attempt = 1; !references.isEmpty(); attempt++) {
+                List<String> ids = references.stream().map(MetaData::getId).collect(toList());
+                if (attempt > PROPAGATION_ATTEMPTS) {
+                    throw new OptimisticLockingFailureException(String.format(
+                            "Entities %s in %s referencing %s in %s were changed concurrently %s times",
+                            ids, type, entityId, property, PROPAGATION_ATTEMPTS));
+                }
+                Set<String> matched = this.guardedPropagation(type, property, entityId, newEntityId, revisionNote,
+                        references);
+                updated += matched.size();
+                List<String> missed = ids.stream().filter(id -> !matched.contains(id)).collect(toList());
+                references = missed.isEmpty() ? Collections.emptyList() : mongoTemplate.find(
+                        referencesQuery(property, entityId).addCriteria(Criteria.where("_id").in(missed)),
+                        MetaData.class, type);
+            }
+            return updated;
+        } finally {
+            //Bulk writes do not publish mapping events
+            autoCompleteIndex.invalidate(type);
+            entityIdIndex.invalidate(type);
+        }
+    }
+
+    private Set<String> guardedPropagation(String type, String property, String entityId, String newEntityId,
+                                           String revisionNote, List<MetaData> references) {
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        //Identifies the updates of this bulk write if not all of them matched
+        Date now = new Date();
+        references.forEach(metaData -> {
+            Update update = newEntityId == null ?
+                    new Update().pull("data.".concat(property), new Document("name", entityId)) :
+                    new Update().set(String.format("data.%s.$[reference].name", property), newEntityId)
+                            .filterArray(Criteria.where("reference.name").is(entityId));
+            update.set("data.revisionnote", revisionNote)
+                    .set("revision.created", now)
+                    .set("revision.updatedBy", PROPAGATION_USER)
+                    .inc("revision.number", 1)
+                    .inc("version", 1);
+            bulkOperations.updateOne(new Query(Criteria.where("_id").is(metaData.getId())
+                    .and("version").is(metaData.getVersion())), update);
+        });
+        int modified = bulkOperations.execute().getModifiedCount();
+
+        Set<String> matched;
+        if (modified == references.size()) {
+            matched = references.stream().map(MetaData::getId).collect(toSet());
+        } else {
+            Query query = new Query(Criteria.where("_id").in(references.stream().map(MetaData::getId).collect(toList()))
+                    .and("revision.created").is(now)
+                    .and("revision.updatedBy").is(PROPAGATION_USER));
+            query.fields().include("version");
+            Map<String, Long> versions = new HashMap<>();
+            mongoTemplate.find(query, Document.class, type)
+                    .forEach(document -> versions.put(document.getString("_id"),
+                            ((Number) document.get("version")).longValue()));
+            matched = references.stream()
+                    .filter(metaData -> Long.valueOf(nextVersion(metaData)).equals(versions.get(metaData.getId())))
+                    .map(MetaData::getId)
+                    .collect(toSet());
+        }
+        List<MetaData> revisions = references.stream()
+                .filter(metaData -> matched.contains(metaData.getId()))
+                .collect(toList());
+        revisions.forEach(metaData -> {
+            metaData.trimSpaces();
+            metaData.revision(UUID.randomUUID().toString());
+        });
+        if (!revisions.isEmpty()) {
+            mongoTemplate.insert(revisions, type.concat(REVISION_POSTFIX));
+        }
+        return matched;
+    }
+
+    private static long nextVersion(MetaData metaData) {
+        return metaData.getVersion() == null ? 1L : metaData.getVersion() + 1;
+    }
+
+    private Query referencesQuery(String property, String entityId) {
+        return new Query(Criteria.where(String.format("data.%s.name", property)).is(entityId));
+    }
+
     public MongoTemplate getMongoTemplate() {
         return mongoTemplate;
     }
 
     public List<Map> autoComplete(String type, String search) {
-        Query query = queryWithSamlFields();
-        if ("*".equals(search)) {
-            return mongoTemplate.find(query, Map.class, type);
-        }
-        String escapedSearch = escapeSpecialChars(search);
-        query.limit(AUTOCOMPLETE_LIMIT);
-        Criteria criteria = new Criteria();
-
-        List<String> parts = Arrays.asList(escapedSearch.split(" "));
-        criteria.andOperator(parts.stream().map(part -> {
-            List<Criteria> orCriterias = new ArrayList<>();
-            orCriterias.add(regex("data.entityid", part));
-            this.supportedLanguages.forEach(lang -> {
-                orCriterias.add(regex("data.metaDataFields.name:" + lang, part));
-                orCriterias.add(regex("data.metaDataFields.displayName:" + lang, part));
-                orCriterias.add(regex("data.metaDataFields.keywords:" + lang, part));
-                orCriterias.add(regex("data.metaDataFields.OrganizationName:" + lang, part));
-            });
-            return new Criteria().orOperator(orCriterias.toArray(new Criteria[orCriterias.size()]));
-        }).toArray(Criteria[]::new));
-        query.addCriteria(criteria);
-        return mongoTemplate.find(query, Map.class, type);
+        return autoCompleteIndex.search(type, search, AUTOCOMPLETE_LIMIT);
     }
 
     public List<Map> allServiceProviderEntityIds() {
@@ -150,19 +279,6 @@ public class MetaDataRepository {
     }
 
 
-    protected String escapeSpecialChars(String query) {
-        return query.replaceAll("([\\Q\\/$^.?*+{}()|[]\\E])", "\\\\$1");
-    }
-
-    private Criteria regex(String key, String search) {
-        try {
-            return Criteria.where(key).regex(".*" + search + ".*", "i");
-        } catch (IllegalArgumentException e) {
-            //ignore
-            return Criteria.where("nope").exists(true);
-        }
-    }
-
     private String escapeMetaDataField(String key) {
         if (key.startsWith("metaDataFields")) {
             return "metaDataFields." + key.substring("metaDataFields.".length())
@@ -176,8 +292,17 @@ public class MetaDataRepository {
 
     }
 
-    public List<Map> search(String type, Map<String, Object> properties, List<String> requestedAttributes, Boolean
-            allAttributes, Boolean logicalOperatorIsAnd) {
+    /**
+     * The documents are read from the cursor while the stream is consumed, so the stream must be closed.
+     */
+    public Stream<Map> streamSearch(String type, Map<String, Object> properties, List<String> requestedAttributes,
+                                    Boolean allAttributes, Boolean logicalOperatorIsAnd, Keyset keyset) {
+        Query query = searchQuery(type, properties, requestedAttributes, allAttributes, logicalOperatorIsAnd);
+        return StreamUtils.createStreamFromIterator(mongoTemplate.stream(keyset.apply(query), Map.class, type));
+    }
+
+    private Query searchQuery(String type, Map<String, Object> properties, List<String> requestedAttributes,
+                              Boolean allAttributes, Boolean logicalOperatorIsAnd) {
         Query query = allAttributes ? new Query() : queryWithSamlFields();
         if (!allAttributes) {
             requestedAttributes.forEach(requestedAttribute -> {
@@ -223,7 +348,7 @@ public class MetaDataRepository {
         } else {
             query.addCriteria(new Criteria().orOperator(criteria));
         }
-        return mongoTemplate.find(query, Map.class, type);
+        return query;
     }
 
     private boolean isNumeric(String value) {
@@ -234,6 +359,21 @@ public class MetaDataRepository {
         return mongoTemplate.find(new BasicQuery(query), MetaData.class, type);
     }
 
+    public Page<MetaData> findRaw(String type, String query, Keyset keyset) {
+        return keyset.pageOfMetaData(mongoTemplate.find(keyset.apply(new BasicQuery(query)), MetaData.class, type));
+    }
+
+    /**
+     * The documents are read from the cursor while the stream is consumed, so the stream must be closed.
+     */
+    public Stream<MetaData> streamRaw(String type, String query) {
+        return StreamUtils.createStreamFromIterator(mongoTemplate.stream(new BasicQuery(query), MetaData.class, type));
+    }
+
+    /**
+     * The identifiers - as {"_id": id} - of the entities with the entityid, ignoring case. Always answered by the
+     * collated query, as entities written by other nodes or imports decide the uniqueness as well.
+     */
     public List<Map> findByEntityId(String type, String entityId) {
         Document document = new Document("data.entityid", entityId);
         Query query = new BasicQuery(document).collation(Collation.of("en").strength(2));
@@ -241,67 +381,113 @@ public class MetaDataRepository {
         return mongoTemplate.find(query, Map.class, type);
     }
 
-    public List<MetaData> recentActivity(List<EntityType> types, int max) {
-        max = Math.min(max, 100);
-        Query query = new Query()
-                .with(Sort.by(Sort.Order.desc("revision.created")))
-                .limit(max);
-        Field fields = query.fields();
-        fields
-                .include("type")
-                .include("data.state")
-                .include("data.entityid")
-                .include("data.metaDataFields.name:en")
-                .include("data.metaDataFields.OrganizationName:en")
-                .include("data.metaDataFields.OrganizationName:en")
-                .include("data.revisionnote")
-                .include("revision.created")
-                .include("revision.terminated")
-                .include("revision.updatedBy");
-
-        List<MetaData> metaData = types.stream()
-                .map(entityType -> mongoTemplate.find(query, MetaData.class, entityType.getType()))
-                .flatMap(List::stream)
-                .collect(toList());
-        List<MetaData> results = metaData.stream()
-                .sorted(Comparator.comparing(md -> md.getRevision().getCreated(), Comparator.reverseOrder()))
-                .collect(toList()).subList(0, Math.min(max, metaData.size()));
-
-        Instant firstActivity = results.get(results.size() - 1).getRevision().getCreated();
-        query.addCriteria(Criteria.where("revision.terminated").gte(firstActivity));
-        List<MetaData> revisionMetaData = types.stream()
-                .map(entityType -> mongoTemplate.find(query, MetaData.class, entityType.getType().concat(REVISION_POSTFIX)))
-                .flatMap(List::stream)
-                .map(this::updateCreatedRevision)
-                .collect(toList());
-        results.addAll(revisionMetaData);
-        if (!revisionMetaData.isEmpty()) {
-            //need to re-sort and cut off again
-            results = results.stream()
-                    .sorted(Comparator.comparing(md -> md.getRevision().getCreated(), Comparator.reverseOrder()))
-                    .collect(toList()).subList(0, Math.min(max, metaData.size()));
-        }
-
-        return results;
-    }
-
-    private MetaData updateCreatedRevision(MetaData metaData) {
-        metaData.getRevision().markCreatedWithTerminatedInstant();
-        return metaData;
+    /**
+     * The entityids of all the entities of all types, read in one pass over every collection
+     */
+    public Set<String> allEntityIds() {
+        Query query = new Query();
+        query.fields().include("data.entityid");
+        Set<String> entityIds = new HashSet<>();
+        Stream.of(EntityType.values()).forEach(entityType -> {
+            try (Stream<Map> documents = StreamUtils.createStreamFromIterator(
+                    mongoTemplate.stream(query, Map.class, entityType.getType()))) {
+                documents.map(document -> ((Map<String, Object>) document.getOrDefault("data", Collections.emptyMap()))
+                                .get("entityid"))
+                        .filter(entityId -> entityId instanceof String)
+                        .forEach(entityId -> entityIds.add((String) entityId));
+            }
+        });
+        return entityIds;
     }
 
-    public List<Map> whiteListing(String type, String state) {
+    /**
+     * The entityids that exist in the collection of the type. One $in query - with the collation of the unique entityid
+     * index - that only returns the entityids, the match itself stays exact.
+     */
+    public Set<String> existingEntityIds(String type, Collection<String> entityIds) {
+        Set<String> candidates = entityIds.stream().filter(Objects::nonNull).collect(toSet());
+        if (candidates.isEmpty()) {
+            return new HashSet<>();
+        }
+        Query query = new Query(Criteria.where("data.entityid").in(candidates))
+                .collation(Collation.of("en").strength(2));
+        query.fields().include("data.entityid").exclude("_id");
+        return mongoTemplate.find(query, Map.class, type).stream()
+                .map(document -> ((Map<String, Object>) document.getOrDefault("data", Collections.emptyMap()))
+                        .get("entityid"))
+                .filter(candidates::contains)
+                .map(entityId -> (String) entityId)
+                .collect(toSet());
+    }
+
+    /**
+     * The in-memory index answers for the entities it knows, the others are confirmed with a query as the index might
+     * not yet have seen the writes of other nodes or imports.
+     */
+    public boolean existsById(String type, String id) {
+        return entityIdIndex.existsById(type, id) ||
+                mongoTemplate.exists(new Query(Criteria.where("_id").is(id)), type);
+    }
+
+    /**
+     * The latest versions and the deleted entities of the types, most recent first. One aggregation with a
+     * $unionWith per collection where every sub-pipeline uses the index on revision.created or revision.terminated
+     * to sort and limit before the results are merged.
+     */
+    public List<MetaData> recentActivity(List<EntityType> types, int max) {
+        if (types.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int limit = Math.min(max, 100);
+        Document projection = new Document();
+        Stream.of("type", "data.state", "data.entityid", "data.metaDataFields.name:en",
+                        "data.metaDataFields.OrganizationName:en", "data.revisionnote", "revision.created",
+                        "revision.terminated", "revision.updatedBy")
+                .forEach(field -> projection.put(field, 1));
+
+        List<Document> pipeline = new ArrayList<>(latestActivity(limit, projection));
+        types.stream().skip(1).forEach(entityType -> pipeline.add(new Document("$unionWith",
+                new Document("coll", entityType.getType()).append("pipeline", latestActivity(limit, projection)))));
+        //The deleted entities in the revision collections are reported as created when they were terminated
+        types.forEach(entityType -> pipeline.add(new Document("$unionWith",
+                new Document("coll", entityType.getType().concat(REVISION_POSTFIX))
+                        .append("pipeline", terminatedActivity(limit, projection)))));
+        pipeline.add(new Document("$sort", new Document("revision.created", -1)));
+        pipeline.add(new Document("$limit", limit));
+
+        return this.aggregate(pipeline, types.get(0).getType(), MetaData.class);
+    }
+
+    private List<Document> latestActivity(int limit, Document projection) {
+        return Arrays.asList(
+                new Document("$sort", new Document("revision.created", -1)),
+                new Document("$limit", limit),
+                new Document("$project", projection));
+    }
+
+    private List<Document> terminatedActivity(int limit, Document projection) {
+        return Arrays.asList(
+                new Document("$match", new Document("revision.terminated", new Document("$ne", null))),
+                new Document("$sort", new Document("revision.terminated", -1)),
+                new Document("$limit", limit),
+                new Document("$project", projection),
+                new Document("$set", new Document("revision.created", "$revision.terminated")));
+    }
+
+    public Page<Map> whiteListing(String type, String state, Keyset keyset) {
         Query query = queryWithSamlFields().addCriteria(Criteria.where("data.state").is(state));
         query.fields()
                 .include("data.allowedall")
                 .include("data.allowedEntities")
                 .include("data.metaDataFields.coin:stepup:requireloa");
-        List<Map> metaData = mongoTemplate.find(query, Map.class, type);
+        Query pagedQuery = keyset.apply(query);
+        List<Map> metaData = mongoTemplate.find(pagedQuery, Map.class, type);
         if (type.equals(EntityType.SP.getType())) {
-            List<Map> oidcMetaData = mongoTemplate.find(query, Map.class, EntityType.RP.getType());
+            //Both pages are merged and cut off again
+            List<Map> oidcMetaData = mongoTemplate.find(pagedQuery, Map.class, EntityType.RP.getType());
             metaData.addAll(oidcMetaData);
         }
-        return metaData;
+        return keyset.pageOfDocuments(metaData);
     }
 
     public List<Map> relyingParties(String resourceServerEntityID) {
@@ -310,14 +496,14 @@ public class MetaDataRepository {
         return mongoTemplate.find(query, Map.class, EntityType.RP.getType());
     }
 
-    public List<Map> allowedEntities(String id, EntityType entityType) {
+    public Page<Map> allowedEntities(String id, EntityType entityType, Keyset keyset) {
         Map byId = mongoTemplate.findById(id, Map.class, entityType.getType());
         Query query = queryWithSamlFields()
                 .addCriteria(new Criteria().orOperator(
                         Criteria.where("data.allowedEntities.name").is(((Map) byId.get("data")).get("entityid")),
                         Criteria.where("data.allowedall").is(true)
                 ));
-        return mongoTemplate.find(query, Map.class, EntityType.IDP.getType());
+        return keyset.pageOfDocuments(mongoTemplate.find(keyset.apply(query), Map.class, EntityType.IDP.getType()));
     }
 
     public List<Map> provisioning(List<String> identifiers) {
@@ -333,13 +519,6 @@ public class MetaDataRepository {
         return res.getValue();
     }
 
-    public List<StatsEntry> stats() {
-        return mongoTemplate.getCollectionNames().stream()
-                .filter(name -> !name.toLowerCase().contains("system"))
-                .map(name -> new StatsEntry(name, mongoTemplate.count(new Query(), name)))
-                .collect(toList());
-    }
-
     private Query queryWithSamlFields() {
         Query query = new Query();
         //When we have multiple types then we need to delegate depending on the type.
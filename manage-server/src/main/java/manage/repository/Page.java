@@ -0,0 +1,26 @@
+package manage.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The results of a list query and the token of the next page, which is null for the last - or only - page.
+ */
+@Getter
+@AllArgsConstructor
+public class Page<T> {
+
+    public static final String NEXT_PAGE_TOKEN = "Next-Page-Token";
+
+    private final List<T> results;
+    private final String nextPageToken;
+
+    public <R> Page<R> map(Function<T, R> mapper) {
+        return new Page<>(results.stream().map(mapper).collect(toList()), nextPageToken);
+    }
+}
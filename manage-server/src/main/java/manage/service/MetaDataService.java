@@ -6,14 +6,15 @@ import com.mongodb.client.result.DeleteResult;
 import manage.api.APIUser;
 import manage.api.AbstractUser;
 import manage.conf.MetaDataAutoConfiguration;
-import manage.control.DatabaseController;
 import manage.exception.DuplicateEntityIdException;
 import manage.exception.EndpointNotAllowed;
 import manage.exception.ResourceNotFoundException;
 import manage.format.SaveURLResource;
 import manage.hook.MetaDataHook;
 import manage.model.*;
+import manage.repository.Keyset;
 import manage.repository.MetaDataRepository;
+import manage.repository.Page;
 import manage.shibboleth.FederatedUser;
 import org.everit.json.schema.ValidationException;
 import org.slf4j.Logger;
@@ -39,6 +40,7 @@ import java.net.URLDecoder;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
@@ -69,7 +71,7 @@ public class MetaDataService {
 
     private final MetaDataHook metaDataHook;
 
-    private final DatabaseController databaseController;
+    private final PushJobService pushJobService;
 
     private final Environment environment;
 
@@ -77,21 +79,25 @@ public class MetaDataService {
 
     private final ExporterService exporterService;
 
+    private final PushSnapshotCache pushSnapshotCache;
+
     public MetaDataService(MetaDataRepository metaDataRepository,
                            MetaDataAutoConfiguration metaDataAutoConfiguration,
                            MetaDataHook metaDataHook,
-                           DatabaseController databaseController,
+                           PushJobService pushJobService,
                            ImporterService importerService,
                            ExporterService exporterService,
+                           PushSnapshotCache pushSnapshotCache,
                            Environment environment) {
 
         this.metaDataRepository = metaDataRepository;
         this.metaDataAutoConfiguration = metaDataAutoConfiguration;
         this.metaDataHook = metaDataHook;
-        this.databaseController = databaseController;
+        this.pushJobService = pushJobService;
         this.exporterService = exporterService;
         this.environment = environment;
         this.importerService = importerService;
+        this.pushSnapshotCache = pushSnapshotCache;
     }
 
     public MetaData getMetaDataAndValidate(String type, String id) {
@@ -205,6 +211,7 @@ public class MetaDataService {
         checkNull(type, id, current);
         current = metaDataHook.preDelete(current);
         metaDataRepository.remove(current);
+        pushSnapshotCache.invalidate(id);
 
         LOG.info("Deleted metaData {} by {}", current.getId(), uid);
 
@@ -241,6 +248,7 @@ public class MetaDataService {
 
         metaData.promoteToLatest(updatedBy, (String) metaData.getData().get("revisionnote"));
         metaDataRepository.update(metaData);
+        pushSnapshotCache.invalidate(id);
 
         LOG.info("Updated metaData {} by {}", metaData.getId(), updatedBy);
 
@@ -266,6 +274,7 @@ public class MetaDataService {
             metaData.promoteToLatest(apiUser.getName(),
                     String.format("API call for deleting %s by %s", keyToDelete, apiUser.getName()));
             metaDataRepository.update(metaData);
+            pushSnapshotCache.invalidate(metaData.getId());
         }
 
         return metaDataList.stream().map(metaData -> (String) metaData.getData().get("entityid")).collect(toList());
@@ -298,6 +307,7 @@ public class MetaDataService {
         if (somethingChanged || forceNewRevision) {
             metaDataRepository.save(previous);
             metaDataRepository.update(metaData);
+            pushSnapshotCache.invalidate(id);
 
             LOG.info("Merging new metaData {} by {}", metaData.getId(), name);
 
@@ -359,6 +369,8 @@ public class MetaDataService {
         checkForDuplicateEntityId(revision, true);
 
         metaDataRepository.save(revision);
+        //The restored entity gets the id - and a reset version - of the deleted entity
+        pushSnapshotCache.invalidate(newId);
 
         LOG.info("Restored deleted revision {} with Id {} by {}", revisionRestore, revision.getId(), federatedUser
                 .getUid());
@@ -391,6 +403,7 @@ public class MetaDataService {
 
         parent.revision(UUID.randomUUID().toString());
         metaDataRepository.save(parent);
+        pushSnapshotCache.invalidate(revision.getId());
 
         LOG.info("Restored revision {} with Id {} by {}", revisionRestore, revision.getId(), federatedUser.getUid());
 
@@ -429,7 +442,25 @@ public class MetaDataService {
         return results;
     }
 
-    public List<Map> searchEntityByType(String type, Map<String, Object> properties, boolean nested) {
+    public Page<Map> searchEntityByType(String type, Map<String, Object> properties, boolean nested, Keyset keyset) {
+        List<Map> search;
+        try (Stream<Map> documents = this.search(type, properties, keyset)) {
+            search = documents.collect(toList());
+        }
+        Page<Map> page = keyset.pageOfDocuments(search);
+        return nested ? page.<Map>map(m -> exporterService.nestMetaData(m, type)) : page;
+    }
+
+    /**
+     * Streaming variant of searchEntityByType. The documents are read from the cursor - and nested - one by one when
+     * the stream is consumed. The caller must close the stream.
+     */
+    public Stream<Map> streamEntityByType(String type, Map<String, Object> properties, boolean nested) {
+        Stream<Map> search = this.search(type, properties, Keyset.unpaged());
+        return nested ? search.<Map>map(m -> exporterService.nestMetaData(m, type)) : search;
+    }
+
+    private Stream<Map> search(String type, Map<String, Object> properties, Keyset keyset) {
         List requestedAttributes = (List) properties.getOrDefault(REQUESTED_ATTRIBUTES, new
                 ArrayList<String>());
         Boolean allAttributes = (Boolean) properties.getOrDefault(ALL_ATTRIBUTES, false);
@@ -437,16 +468,26 @@ public class MetaDataService {
         properties.remove(REQUESTED_ATTRIBUTES);
         properties.remove(ALL_ATTRIBUTES);
         properties.remove(LOGICAL_OPERATOR_IS_AND);
-        List<Map> search = metaDataRepository.search(type, properties, requestedAttributes, allAttributes,
-                logicalOperatorIsAnd);
-        return nested ? search.stream().map(m -> exporterService.nestMetaData(m, type)).collect(toList()) : search;
+        return metaDataRepository.streamSearch(type, properties, requestedAttributes, allAttributes,
+                logicalOperatorIsAnd, keyset);
+    }
+
+    public Page<MetaData> retrieveRawSearch(String type, String query, Keyset keyset)
+            throws UnsupportedEncodingException {
+        if (query.startsWith("%")) {
+            query = URLDecoder.decode(query, "UTF-8");
+        }
+        return metaDataRepository.findRaw(type, query, keyset);
     }
 
-    public List<MetaData> retrieveRawSearch(String type, String query) throws UnsupportedEncodingException {
+    /**
+     * Streaming variant of retrieveRawSearch. The caller must close the stream.
+     */
+    public Stream<MetaData> streamRawSearch(String type, String query) throws UnsupportedEncodingException {
         if (query.startsWith("%")) {
             query = URLDecoder.decode(query, "UTF-8");
         }
-        return metaDataRepository.findRaw(type, query);
+        return metaDataRepository.streamRaw(type, query);
     }
 
     public List<MetaData> retrieveRecentActivity(Map<String, Object> properties) {
@@ -495,7 +536,8 @@ public class MetaDataService {
         addAllowedEntity(sp, idpEntityId, connectionData, apiUser, false);
         addAllowedEntity(idp, spEntityId, connectionData, apiUser, true);
 
-        databaseController.doPush();
+        //Bursts of connects are coalesced into one push
+        pushJobService.submit(false, false, apiUser.getName());
     }
 
     private void addAllowedEntity(MetaData metaData,
@@ -0,0 +1,23 @@
+package manage.service;
+
+import java.util.Base64;
+
+/**
+ * Content hash over all the connections of a push. The digests of the connections are combined with XOR, so the
+ * hash does not depend on the order in which the connections are added and adding a connection again removes it.
+ */
+public class PushHash {
+
+    private final byte[] hash = new byte[32];
+
+    public void add(PushSnapshotCache.Snapshot snapshot) {
+        byte[] digest = snapshot.getDigest();
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] ^= digest[i];
+        }
+    }
+
+    public String value() {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+}
@@ -0,0 +1,101 @@
+package manage.service;
+
+import manage.control.DatabaseController;
+import manage.model.PushJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the pushes one at the time on a dedicated thread. Push requests are coalesced into the pending push job, if
+ * there is one. A request during a running push results in a new pending job, as the running push might not contain
+ * the latest changes.
+ */
+@Service
+public class PushJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PushJobService.class);
+
+    private static final int MAX_JOBS = 100;
+
+    private final DatabaseController databaseController;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    private final Map<String, PushJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PushJob> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    private PushJob pendingJob;
+
+    public PushJobService(DatabaseController databaseController) {
+        this.databaseController = databaseController;
+    }
+
+    public synchronized PushJob submit(boolean delta, boolean force, String requestedBy) {
+        if (pendingJob != null) {
+            LOG.info("Push requested by {} coalesced into pending push job {}", requestedBy, pendingJob.getId());
+            pendingJob.coalesce(delta, force);
+            return pendingJob;
+        }
+        PushJob job = new PushJob(UUID.randomUUID().toString(), delta, force, requestedBy);
+        this.pendingJob = job;
+        this.jobs.put(job.getId(), job);
+        this.executorService.execute(() -> this.run(job));
+        return job;
+    }
+
+    /**
+     * Submit a push job and wait for the result of the push
+     */
+    public Map<String, Object> submitAndWait(boolean delta, boolean force, String requestedBy) {
+        try {
+            return this.submit(delta, force, requestedBy).getFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    public Optional<PushJob> findById(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(PushJob job) {
+        synchronized (this) {
+            //From now on push requests need a new push
+            this.pendingJob = null;
+        }
+        job.start();
+        LOG.info("Started {} push job {} requested by {}", job.isDelta() ? "delta" : "full", job.getId(),
+                job.getRequestedBy());
+        try {
+            ResponseEntity<Map> response = job.isDelta() ?
+                    databaseController.doDeltaPush(job::phase) : databaseController.doPush(job.isForce(), job::phase);
+            job.finish(response.getBody());
+            LOG.info("Finished push job {} in {} ms", job.getId(), job.getDurationMillis());
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Push job %s failed", job.getId()), e);
+            job.fail(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+}
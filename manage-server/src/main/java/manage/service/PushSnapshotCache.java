@@ -0,0 +1,110 @@
+package manage.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the serialized EngineBlock format of every pushed entity keyed by the id of the entity and only valid for the
+ * version of the entity it was formatted for. Pushes only need to format new and changed entities. The content hash
+ * over all the snapshots is kept up to date with every change, so it is known without a pass over the snapshots.
+ */
+@Service
+public class PushSnapshotCache {
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private PushHash hash = new PushHash();
+
+    public Optional<Snapshot> get(String id, Long version) {
+        Snapshot snapshot = snapshots.get(id);
+        return snapshot != null && snapshot.getVersion().equals(version) ? Optional.of(snapshot) : Optional.empty();
+    }
+
+    /**
+     * A null connection means the entity is excluded from the push.
+     */
+    public Snapshot put(String id, Long version, String connection) {
+        Snapshot snapshot = new Snapshot(version, connection, connection == null ? null : digest(id, connection));
+        //Entities inserted by scripts are not versioned, we can never tell if they have changed
+        if (version != null) {
+            synchronized (this) {
+                this.toggle(snapshots.put(id, snapshot));
+                this.toggle(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    public synchronized void invalidate(String id) {
+        this.toggle(snapshots.remove(id));
+    }
+
+    public synchronized void invalidateAll() {
+        snapshots.clear();
+        hash = new PushHash();
+    }
+
+    public synchronized void retainAll(Set<String> ids) {
+        snapshots.entrySet().removeIf(entry -> {
+            boolean removed = !ids.contains(entry.getKey());
+            if (removed) {
+                this.toggle(entry.getValue());
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * The content hash over all the snapshots, but only if there are exactly as many snapshots as the expected
+     * number. Otherwise the snapshots are not - or no longer - those of the entities of the push.
+     */
+    public synchronized Optional<String> hash(int expectedSize) {
+        return snapshots.size() == expectedSize ? Optional.of(hash.value()) : Optional.empty();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    //Adds the digest of a snapshot to the hash, or removes it again if it was already added
+    private void toggle(Snapshot snapshot) {
+        if (snapshot != null && !snapshot.isExcludedFromPush()) {
+            hash.add(snapshot);
+        }
+    }
+
+    private static byte[] digest(String id, String connection) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(id.getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+            return messageDigest.digest(connection.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+
+        private final Long version;
+        private final String connection;
+        /**
+         * SHA-256 of the id and the connection, null if the entity is excluded from the push
+         */
+        private final byte[] digest;
+
+        public boolean isExcludedFromPush() {
+            return connection == null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package manage.service;
+
+import manage.model.PropagationJob;
+import manage.repository.MetaDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Propagates an entityid rename or deletion to the references of the other entities with bulk writes. A propagation
+ * with more references than the threshold runs in the background, one at the time, so the request that renamed or
+ * deleted the entity does not wait for it.
+ */
+@Service
+public class ReferencePropagationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferencePropagationService.class);
+
+    private static final int MAX_JOBS = 100;
+
+    private final MetaDataRepository metaDataRepository;
+    private final long backgroundThreshold;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    private final Map<String, PropagationJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PropagationJob> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    public ReferencePropagationService(
+            MetaDataRepository metaDataRepository,
+            @Value("${reference_propagation.background_threshold}") long backgroundThreshold) {
+        this.metaDataRepository = metaDataRepository;
+        this.backgroundThreshold = backgroundThreshold;
+    }
+
+    /**
+     * Renames - or removes if the new entityid is null - the references to the entityid in the reference properties,
+     * mapped by the type of the referencing entities.
+     */
+    public PropagationJob propagate(String entityId, String newEntityId, Map<String, List<String>> propertiesByType,
+                                    String revisionNote) {
+        long references = propertiesByType.entrySet().stream()
+                .mapToLong(entry -> entry.getValue().stream()
+                        .mapToLong(property -> metaDataRepository.countReferences(entry.getKey(), property, entityId))
+                        .sum())
+                .sum();
+        boolean background = references > backgroundThreshold;
+        PropagationJob job = new PropagationJob(UUID.randomUUID().toString(), entityId, newEntityId, references,
+                background);
+        if (references == 0) {
+            job.finish();
+            return job;
+        }
+        jobs.put(job.getId(), job);
+        if (background) {
+            LOG.info("Propagating {} references to {} in background job {}", references, entityId, job.getId());
+            executorService.execute(() -> this.run(job, propertiesByType, revisionNote));
+        } else {
+            this.run(job, propertiesByType, revisionNote);
+        }
+        return job;
+    }
+
+    public Optional<PropagationJob> findById(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<PropagationJob> jobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private void run(PropagationJob job, Map<String, List<String>> propertiesByType, String revisionNote) {
+        job.start();
+        try {
+            propertiesByType.forEach((type, properties) -> properties.forEach(property ->
+                    job.updated(metaDataRepository.propagateReference(type, property, job.getEntityId(),
+                            job.getNewEntityId(), revisionNote))));
+            job.finish();
+            LOG.info("Propagated {} references to {} in {} ms", job.getUpdated(), job.getEntityId(),
+                    job.getDurationMillis());
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Propagation job %s failed", job.getId()), e);
+            job.fail(e);
+            if (!job.isBackground()) {
+                throw e;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+package manage.service;
+
+import manage.model.Scope;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * All scopes mapped by their name. The mapping is loaded on first use and evicted when a scope is saved or deleted.
+ */
+@Component
+public class ScopeCache extends AbstractMongoEventListener<Scope> {
+
+    private final MongoTemplate mongoTemplate;
+
+    private Map<String, Scope> scopesByName;
+    private long generation;
+
+    public ScopeCache(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Map<String, Scope> scopesByName() {
+        long loadedGeneration;
+        synchronized (this) {
+            if (scopesByName != null) {
+                return scopesByName;
+            }
+            loadedGeneration = generation;
+        }
+        Map<String, Scope> scopes = mongoTemplate.findAll(Scope.class).stream()
+                .collect(toMap(Scope::getName, Function.identity()));
+        synchronized (this) {
+            //Do not cache the scopes if they have changed while loading
+            if (loadedGeneration == generation) {
+                scopesByName = scopes;
+            }
+        }
+        return scopes;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Scope> event) {
+        this.evict();
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Scope> event) {
+        this.evict();
+    }
+
+    private synchronized void evict() {
+        scopesByName = null;
+        generation++;
+    }
+}
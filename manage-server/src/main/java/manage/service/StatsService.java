@@ -0,0 +1,105 @@
+package manage.service;
+
+import manage.model.StatsEntry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The estimated number of documents and the storage and index sizes of all collections. The statistics are cached for
+ * the configured time to live and the count of a collection is estimated again after a document in the collection
+ * has been saved or deleted.
+ */
+@Service
+public class StatsService extends AbstractMongoEventListener<Object> {
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    private Map<String, StatsEntry> statistics;
+    private Instant loaded;
+    private final Set<String> changed = new HashSet<>();
+
+    public StatsService(MongoTemplate mongoTemplate, @Value("${stats.ttl_seconds}") long timeToLiveSeconds) {
+        this(mongoTemplate, Duration.ofSeconds(timeToLiveSeconds), Clock.systemUTC());
+    }
+
+    StatsService(MongoTemplate mongoTemplate, Duration timeToLive, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    public List<StatsEntry> stats() {
+        Set<String> recount;
+        synchronized (this) {
+            if (statistics == null || loaded.plus(timeToLive).isBefore(clock.instant())) {
+                Map<String, StatsEntry> all = new LinkedHashMap<>();
+                mongoTemplate.getCollectionNames().stream()
+                        .filter(name -> !name.toLowerCase().contains("system"))
+                        .sorted()
+                        .forEach(name -> all.put(name, this.statsEntry(name)));
+                statistics = all;
+                loaded = clock.instant();
+                changed.clear();
+                return new ArrayList<>(statistics.values());
+            }
+            recount = new HashSet<>(changed);
+            changed.clear();
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        recount.forEach(name -> counts.put(name, this.estimatedCount(name)));
+        synchronized (this) {
+            //New collections are reported after the time to live
+            counts.forEach((name, count) -> statistics.computeIfPresent(name, (key, entry) ->
+                    new StatsEntry(name, count, entry.storageSize, entry.indexSize)));
+            return new ArrayList<>(statistics.values());
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        this.changed(event.getCollectionName());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        this.changed(event.getCollectionName());
+    }
+
+    private synchronized void changed(String collectionName) {
+        if (collectionName != null) {
+            changed.add(collectionName);
+        }
+    }
+
+    private StatsEntry statsEntry(String name) {
+        Document collStats = mongoTemplate.getDb().runCommand(new Document("collStats", name));
+        return new StatsEntry(name, this.estimatedCount(name), size(collStats, "storageSize"),
+                size(collStats, "totalIndexSize"));
+    }
+
+    private long estimatedCount(String name) {
+        return mongoTemplate.getCollection(name).estimatedDocumentCount();
+    }
+
+    private static Long size(Document collStats, String key) {
+        Object size = collStats.get(key);
+        return size instanceof Number ? ((Number) size).longValue() : null;
+    }
+}
@@ -0,0 +1,83 @@
+package manage.web;
+
+import lombok.Getter;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a JSON push body - optionally gzip compressed - to the request and keeps track of the raw and the
+ * compressed size of the body.
+ */
+public class PushRequestCallback implements RequestCallback {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final boolean gzip;
+    private final BodyWriter bodyWriter;
+
+    @Getter
+    private long rawSize;
+    @Getter
+    private long compressedSize;
+
+    public PushRequestCallback(boolean gzip, BodyWriter bodyWriter) {
+        this.gzip = gzip;
+        this.bodyWriter = bodyWriter;
+    }
+
+    @Override
+    public void doWithRequest(ClientHttpRequest request) throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        //Request factories that do not buffer the request body only support writing the body with a callback
+        if (request instanceof StreamingHttpOutputMessage) {
+            ((StreamingHttpOutputMessage) request).setBody(this::writeBody);
+        } else {
+            this.writeBody(request.getBody());
+        }
+    }
+
+    public Map<String, Long> sizes() {
+        Map<String, Long> sizes = new HashMap<>();
+        sizes.put("raw", rawSize);
+        sizes.put("compressed", compressedSize);
+        return sizes;
+    }
+
+    private void writeBody(OutputStream outputStream) throws IOException {
+        //The request owns the output stream, so it must not be closed by the body writer or the gzip stream
+        CountingOutputStream compressed = new CountingOutputStream(StreamUtils.nonClosing(outputStream));
+        if (gzip) {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed, BUFFER_SIZE);
+            CountingOutputStream raw = new CountingOutputStream(gzipOutputStream);
+            bodyWriter.write(StreamUtils.nonClosing(raw));
+            gzipOutputStream.finish();
+            this.rawSize = raw.getByteCount();
+        } else {
+            bodyWriter.write(compressed);
+            this.rawSize = compressed.getByteCount();
+        }
+        compressed.flush();
+        this.compressedSize = compressed.getByteCount();
+    }
+
+    @FunctionalInterface
+    public interface BodyWriter {
+
+        void write(OutputStream outputStream) throws IOException;
+    }
+}
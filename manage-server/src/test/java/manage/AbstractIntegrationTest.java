@@ -9,6 +9,7 @@ import manage.model.EntityType;
 import manage.model.MetaData;
 import manage.repository.MetaDataRepository;
 import manage.repository.ScopeRepository;
+import manage.service.PushSnapshotCache;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.slf4j.Logger;
@@ -52,6 +53,9 @@ public abstract class AbstractIntegrationTest implements TestUtils {
     @Autowired
     protected MetaDataAutoConfiguration metaDataAutoConfiguration;
 
+    @Autowired
+    protected PushSnapshotCache pushSnapshotCache;
+
     @LocalServerPort
     protected int port;
 
@@ -76,6 +80,8 @@ public abstract class AbstractIntegrationTest implements TestUtils {
                         removedRevisions, revisionsSchema);
             });
             metaDataList.forEach(metaDataRepository::save);
+            //The seed data is re-inserted with the same id and version
+            pushSnapshotCache.invalidateAll();
 
             metaDataList.stream().collect(Collectors.groupingBy(MetaData::getType))
                     .forEach((type, metaData) -> await().until(() -> mongoTemplate.count(query, type) == metaData
@@ -0,0 +1,63 @@
+package manage.conf;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import manage.TestUtils;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@SuppressWarnings("unchecked")
+public class JSONObjectConverterTest implements TestUtils {
+
+    private final JSONObjectConverter subject = new JSONObjectConverter(objectMapper);
+
+    @Test
+    public void convertSeed() throws Exception {
+        List<Map<String, Object>> seed = objectMapper.readValue(readFile("json/meta_data_seed.json"),
+                new TypeReference<>() {
+                });
+        for (Map<String, Object> metaData : seed) {
+            Map<String, Object> data = (Map<String, Object>) metaData.get("data");
+            assertTrue(roundTrip(data).similar(subject.convert(data)));
+        }
+    }
+
+    @Test
+    public void convertValues() throws Exception {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("null", null);
+        nested.put("array", new Object[]{"a", 1});
+        Map<String, Object> data = new HashMap<>();
+        data.put("null", null);
+        data.put("long", 1L);
+        data.put("bigLong", Long.MAX_VALUE);
+        data.put("bigInteger", BigInteger.TEN.pow(30));
+        data.put("double", 1.5D);
+        data.put("date", new Date(0));
+        data.put("instant", Instant.EPOCH);
+        data.put("list", Arrays.asList(null, true, nested));
+
+        JSONObject expected = roundTrip(data);
+        JSONObject jsonObject = subject.convert(data);
+        assertTrue(expected.similar(jsonObject));
+        assertEquals(expected.toMap(), jsonObject.toMap());
+        assertEquals(JSONObject.NULL, jsonObject.get("null"));
+        assertEquals(Integer.class, jsonObject.get("long").getClass());
+        assertEquals(Long.class, jsonObject.get("bigLong").getClass());
+    }
+
+    private JSONObject roundTrip(Map<String, Object> data) throws Exception {
+        return new JSONObject(new JSONTokener(objectMapper.writeValueAsString(data)));
+    }
+}
@@ -1,16 +1,30 @@
 package manage.control;
 
 import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.MetaData;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DatabaseControllerTest extends AbstractIntegrationTest {
 
+    @Autowired
+    private DatabaseController databaseController;
+
     @Test
     public void pushPreview() throws Exception {
         Map connections = given()
@@ -32,4 +46,82 @@ public class DatabaseControllerTest extends AbstractIntegrationTest {
         assertEquals(importFromEdugain, "1");
     }
 
+    @Test
+    public void deltaPushPreview() {
+        Map<String, Object> delta = databaseController.deltaPushPreview(Instant.parse("2000-01-01T00:00:00Z"));
+        assertEquals(databaseController.pushPreview().get("connections"), delta.get("connections"));
+        //Excluded from push
+        assertEquals(Set.of("2"), delta.get("deleted"));
+
+        Instant since = Instant.now();
+        delta = databaseController.deltaPushPreview(since);
+        assertTrue(((Map) delta.get("connections")).isEmpty());
+
+        MetaData metaData = metaDataRepository.findById("1", EntityType.SP.getType());
+        MetaData previous = metaDataRepository.findById("1", EntityType.SP.getType());
+        previous.revision(UUID.randomUUID().toString());
+        metaDataRepository.save(previous);
+        metaData.promoteToLatest("test", "test");
+        metaDataRepository.update(metaData);
+
+        MetaData deleted = metaDataRepository.findById("6", EntityType.IDP.getType());
+        metaDataRepository.remove(deleted);
+        deleted.revision(UUID.randomUUID().toString());
+        deleted.terminate(UUID.randomUUID().toString(), "deleted", "test");
+        metaDataRepository.save(deleted);
+
+        delta = databaseController.deltaPushPreview(since);
+        assertEquals(1, ((Map) delta.get("connections")).size());
+        assertTrue(((Map) delta.get("connections")).containsKey("1"));
+        assertEquals(1, ((Collection) delta.get("deleted")).size());
+        assertTrue(((Collection) delta.get("deleted")).contains("6"));
+    }
+
+    @Test
+    public void pushPreviewSnapshots() {
+        Map<String, Map<String, Object>> connections = databaseController.pushPreview().get("connections");
+        assertTrue(connections.containsKey("1"));
+        assertTrue(pushSnapshotCache.size() > 0);
+
+        MetaData metaData = metaDataRepository.findById("1", EntityType.SP.getType());
+        metaData.metaDataFields().put("coin:exclude_from_push", true);
+        metaDataRepository.update(metaData);
+
+        MetaData deleted = metaDataRepository.findById("6", EntityType.IDP.getType());
+        metaDataRepository.remove(deleted);
+
+        Map<String, Map<String, Object>> cachedConnections = databaseController.pushPreview().get("connections");
+        assertFalse(cachedConnections.containsKey("1"));
+        assertFalse(cachedConnections.containsKey("6"));
+        assertFalse(pushSnapshotCache.get("6", deleted.getVersion()).isPresent());
+
+        connections.remove("1");
+        connections.remove("6");
+        assertEquals(connections, cachedConnections);
+    }
+
+    @Test
+    public void pushHash() {
+        //Nothing has been formatted yet
+        assertFalse(databaseController.pushHash().isPresent());
+
+        databaseController.pushPreview();
+        Optional<String> pushHash = databaseController.pushHash();
+        assertTrue(pushHash.isPresent());
+        assertEquals(pushHash, databaseController.pushHash());
+
+        MetaData metaData = metaDataRepository.findById("1", EntityType.SP.getType());
+        metaData.metaDataFields().put("description:en", "Changed");
+        metaDataRepository.update(metaData);
+        assertFalse(databaseController.pushHash().isPresent());
+
+        databaseController.pushPreview();
+        assertTrue(databaseController.pushHash().isPresent());
+        assertNotEquals(pushHash, databaseController.pushHash());
+
+        MetaData deleted = metaDataRepository.findById("6", EntityType.IDP.getType());
+        metaDataRepository.remove(deleted);
+        assertFalse(databaseController.pushHash().isPresent());
+    }
+
 }
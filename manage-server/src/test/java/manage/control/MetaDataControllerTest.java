@@ -4,10 +4,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import io.restassured.common.mapper.TypeRef;
 import io.restassured.http.ContentType;
+import io.restassured.response.Response;
 import io.restassured.response.ValidatableResponse;
 import io.restassured.specification.RequestSpecification;
 import manage.AbstractIntegrationTest;
 import manage.model.*;
+import org.bson.Document;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.mongodb.core.query.Query;
@@ -15,8 +17,11 @@ import org.springframework.data.mongodb.core.query.Query;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.time.Instant;
 import java.util.*;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.given;
 import static io.restassured.config.RestAssuredConfig.newConfig;
@@ -616,6 +621,47 @@ public class MetaDataControllerTest extends AbstractIntegrationTest {
                 .body("size()", is(5));
     }
 
+    @Test
+    public void streamSearch() throws IOException {
+        Map<String, Object> searchOptions = new HashMap<>();
+        searchOptions.put(ALL_ATTRIBUTES, true);
+        String body = given()
+                .auth()
+                .preemptive()
+                .basic("sp-portal", "secret")
+                .when()
+                .body(searchOptions)
+                .header("Content-type", "application/json")
+                .post("manage/api/internal/search/saml20_sp/stream?nested=true")
+                .then()
+                .statusCode(SC_OK)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+        List<String> lines = Arrays.asList(body.split("\n"));
+        assertEquals(7, lines.size());
+        for (String line : lines) {
+            Map<String, Object> metaData = objectMapper.readValue(line, Map.class);
+            assertTrue(((Map) metaData.get("data")).containsKey("entityid"));
+        }
+    }
+
+    @Test
+    public void streamRawSearch() {
+        String query = "{$and: [{$or:[{\"data.allowedEntities.name\": {$in: [\"http://mock-idp\"]}}, {\"data" +
+                ".allowedall\": true}]}, {\"data.state\":\"prodaccepted\"}]}";
+        String body = given()
+                .auth()
+                .preemptive()
+                .basic("sp-portal", "secret")
+                .when()
+                .queryParam("query", query)
+                .get("manage/api/internal/rawSearch/saml20_sp/stream")
+                .then()
+                .statusCode(SC_OK)
+                .extract().asString();
+        assertEquals(5, body.split("\n").length);
+    }
+
     private void doUpdate(EntityType type, String id, String revisionNote) {
         MetaData metaData = given()
                 .when()
@@ -728,6 +774,139 @@ public class MetaDataControllerTest extends AbstractIntegrationTest {
                 .body("data.allowedall", hasItems(true, false));
     }
 
+    @Test
+    public void whiteListingPaginated() {
+        List<String> entityIds = new ArrayList<>();
+        String pageToken = null;
+        do {
+            RequestSpecification request = given()
+                    .when()
+                    .queryParam("state", "prodaccepted")
+                    .queryParam("pageSize", 4)
+                    .queryParam("sort", "entityid");
+            if (pageToken != null) {
+                request.queryParam("pageToken", pageToken);
+            }
+            Response response = request.get("manage/api/client/whiteListing/saml20_sp");
+            response.then().statusCode(SC_OK);
+            List<String> page = response.jsonPath().getList("data.entityid");
+            assertTrue(page.size() <= 4);
+            entityIds.addAll(page);
+            pageToken = response.header("Next-Page-Token");
+        } while (pageToken != null);
+
+        //The service providers and the relying parties are merged in one sorted result
+        assertEquals(6, entityIds.size());
+        List<String> sorted = new ArrayList<>(entityIds);
+        Collections.sort(sorted);
+        assertEquals(sorted, entityIds);
+    }
+
+    @Test
+    public void searchPaginatedMaxPageSize() {
+        Map<String, Object> searchOptions = new HashMap<>();
+        String pageToken = given()
+                .when()
+                .body(searchOptions)
+                .header("Content-type", "application/json")
+                .queryParam("pageSize", 100)
+                .post("manage/api/client/search/saml20_sp")
+                .then()
+                .statusCode(SC_OK)
+                .body("size()", is(5))
+                .body("'_id'", contains("1", "11", "2", "3", "4"))
+                .extract().header("Next-Page-Token");
+
+        given()
+                .when()
+                .body(searchOptions)
+                .header("Content-type", "application/json")
+                .queryParam("pageToken", pageToken)
+                .post("manage/api/client/search/saml20_sp")
+                .then()
+                .statusCode(SC_OK)
+                .header("Next-Page-Token", nullValue())
+                .body("'_id'", contains("5", "8"));
+    }
+
+    @Test
+    public void searchUnpagedByDefault() {
+        given()
+                .when()
+                .body(new HashMap<>())
+                .header("Content-type", "application/json")
+                .post("manage/api/client/search/saml20_sp")
+                .then()
+                .statusCode(SC_OK)
+                .header("Next-Page-Token", nullValue())
+                .body("size()", is(7));
+    }
+
+    @Test
+    public void searchSortedIsPaged() {
+        given()
+                .when()
+                .body(new HashMap<>())
+                .header("Content-type", "application/json")
+                .queryParam("sort", "entityid")
+                .post("manage/api/client/search/saml20_sp")
+                .then()
+                .statusCode(SC_OK)
+                .header("Next-Page-Token", notNullValue())
+                .body("size()", is(5));
+    }
+
+    @Test
+    public void searchPaginatedWithoutEntityId() {
+        Stream.of("0", "99").forEach(id -> mongoTemplate().getCollection("saml20_sp")
+                .insertOne(new Document("_id", id).append("data", new Document("state", "prodaccepted"))));
+        List<String> ids = new ArrayList<>();
+        String pageToken = null;
+        do {
+            RequestSpecification request = given()
+                    .when()
+                    .body(new HashMap<>())
+                    .header("Content-type", "application/json")
+                    .queryParam("pageSize", 2)
+                    .queryParam("sort", "entityid");
+            if (pageToken != null) {
+                request.queryParam("pageToken", pageToken);
+            }
+            Response response = request.post("manage/api/client/search/saml20_sp");
+            response.then().statusCode(SC_OK);
+            ids.addAll(response.jsonPath().getList("_id"));
+            pageToken = response.header("Next-Page-Token");
+        } while (pageToken != null);
+
+        //The entities without entityid come first
+        assertEquals(9, ids.size());
+        assertEquals(List.of("0", "99"), ids.subList(0, 2));
+        assertEquals(9, new HashSet<>(ids).size());
+    }
+
+    @Test
+    public void searchInvalidSort() {
+        Stream.of("nope", "created").forEach(sort -> given()
+                .when()
+                .body(new HashMap<>())
+                .header("Content-type", "application/json")
+                .queryParam("sort", sort)
+                .post("manage/api/client/search/saml20_sp")
+                .then()
+                .statusCode(SC_BAD_REQUEST));
+    }
+
+    @Test
+    public void rawSearchInvalidPageToken() {
+        given()
+                .when()
+                .queryParam("query", "{\"data.state\":\"prodaccepted\"}")
+                .queryParam("pageToken", "nope")
+                .get("manage/api/client/rawSearch/saml20_sp")
+                .then()
+                .statusCode(SC_BAD_REQUEST);
+    }
+
     @Test
     public void relyingParties() {
         List<Map<String, Object>> relyingParties = given()
@@ -880,6 +1059,15 @@ public class MetaDataControllerTest extends AbstractIntegrationTest {
         List<MetaData> sps = metaDataRepository.findRaw("saml20_sp", "{\"data.allowedEntities.name\" : " +
                 "\"new-entityid\"}");
         assertEquals(2, sps.size());
+        sps.forEach(sp -> {
+            assertEquals(1L, sp.getVersion().longValue());
+            assertEquals("System", sp.getRevision().getUpdatedBy());
+            assertEquals("Updated after entityId rename of http://mock-idp to new-entityid",
+                    sp.getData().get("revisionnote"));
+        });
+        List<MetaData> revisions = metaDataRepository.findRaw("saml20_sp_revision",
+                "{\"data.allowedEntities.name\" : \"http://mock-idp\"}");
+        assertEquals(2, revisions.size());
     }
 
     @Test
@@ -1300,6 +1488,45 @@ public class MetaDataControllerTest extends AbstractIntegrationTest {
         assertEquals(3, request.getPathUpdates().size());
     }
 
+    @Test
+    public void allChangeRequestsPaginated() {
+        Stream.of(1, 2, 3).forEach(i -> doCreateChangeRequest());
+
+        given()
+                .when()
+                .get("manage/api/client/change-requests/count")
+                .then()
+                .statusCode(SC_OK)
+                .body(equalTo("3"));
+
+        List<String> identifiers = new ArrayList<>();
+        List<Long> created = new ArrayList<>();
+        String pageToken = null;
+        do {
+            RequestSpecification request = given()
+                    .when()
+                    .queryParam("pageSize", 2);
+            if (pageToken != null) {
+                request.queryParam("pageToken", pageToken);
+            }
+            Response response = request.get("manage/api/client/change-requests/all");
+            response.then()
+                    .statusCode(SC_OK)
+                    .body("pathUpdates", everyItem(nullValue()))
+                    .body("metaDataSummary", everyItem(notNullValue()));
+            identifiers.addAll(response.jsonPath().getList("id"));
+            created.addAll(response.jsonPath().getList("created", String.class).stream()
+                    .map(date -> Instant.parse(date).toEpochMilli())
+                    .collect(Collectors.toList()));
+            pageToken = response.header("Next-Page-Token");
+        } while (pageToken != null);
+
+        assertEquals(3, new HashSet<>(identifiers).size());
+        List<Long> sorted = new ArrayList<>(created);
+        sorted.sort(Collections.reverseOrder());
+        assertEquals(sorted, created);
+    }
+
     @Test
     public void deleteChangeRequestAfterMetaDataDelete() {
         doCreateChangeRequest();
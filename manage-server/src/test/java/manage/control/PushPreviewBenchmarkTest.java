@@ -0,0 +1,88 @@
+package manage.control;
+
+import manage.AbstractIntegrationTest;
+import manage.format.EngineBlockFormatter;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the wall-clock time of the former sequential push preview with the concurrent and the cached push preview
+ * for 10k entities. Only runs with -Dbenchmark=true.
+ */
+public class PushPreviewBenchmarkTest extends AbstractIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PushPreviewBenchmarkTest.class);
+
+    private static final int ENTITIES = 10_000;
+
+    @Autowired
+    private DatabaseController databaseController;
+
+    @Test
+    public void pushPreview() {
+        assumeTrue("Run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+        insertEntities();
+
+        long start = System.currentTimeMillis();
+        int sequential = sequentialPushPreview();
+        long sequentialMillis = System.currentTimeMillis() - start;
+
+        pushSnapshotCache.invalidateAll();
+        start = System.currentTimeMillis();
+        Map<String, Map<String, Object>> connections = databaseController.pushPreview().get("connections");
+        long concurrentMillis = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        Map<String, Map<String, Object>> cachedConnections = databaseController.pushPreview().get("connections");
+        long cachedMillis = System.currentTimeMillis() - start;
+
+        LOG.info("Push preview of {} entities: sequential {} ms, concurrent {} ms, cached {} ms",
+                sequential, sequentialMillis, concurrentMillis, cachedMillis);
+        assertEquals(connections, cachedConnections);
+    }
+
+    private void insertEntities() {
+        MongoTemplate mongoTemplate = mongoTemplate();
+        List<MetaData> templates = new ArrayList<>();
+        Stream.of(EntityType.SP, EntityType.IDP, EntityType.RP)
+                .forEach(entityType -> templates.addAll(mongoTemplate.findAll(MetaData.class, entityType.getType())));
+        Map<String, List<MetaData>> entities = new HashMap<>();
+        for (int i = 0; i < ENTITIES; i++) {
+            MetaData template = templates.get(i % templates.size());
+            Map<String, Object> data = new HashMap<>(template.getData());
+            data.put("entityid", String.format("https://benchmark.%s.org", i));
+            MetaData metaData = new MetaData(template.getType(), data);
+            metaData.initial(UUID.randomUUID().toString(), "benchmark", (long) i);
+            entities.computeIfAbsent(template.getType(), type -> new ArrayList<>()).add(metaData);
+        }
+        entities.forEach((type, metaDataList) -> mongoTemplate.insert(metaDataList, type));
+    }
+
+    private int sequentialPushPreview() {
+        MongoTemplate mongoTemplate = mongoTemplate();
+        EngineBlockFormatter formatter = new EngineBlockFormatter();
+        Map<String, Map<String, Object>> connections = new HashMap<>();
+        mongoTemplate.findAll(MetaData.class, EntityType.SP.getType())
+                .forEach(metaData -> connections.put(metaData.getId(), formatter.parseServiceProvider(metaData)));
+        mongoTemplate.findAll(MetaData.class, EntityType.RP.getType())
+                .forEach(metaData -> connections.put(metaData.getId(), formatter.parseOidcClient(metaData)));
+        mongoTemplate.findAll(MetaData.class, EntityType.IDP.getType())
+                .forEach(metaData -> connections.put(metaData.getId(), formatter.parseIdentityProvider(metaData)));
+        return connections.size();
+    }
+}
@@ -1,15 +1,26 @@
 package manage.control;
 
 import manage.AbstractIntegrationTest;
+import manage.model.Push;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static io.restassured.RestAssured.given;
+import static org.apache.http.HttpStatus.SC_ACCEPTED;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 @SuppressWarnings("unchecked")
 public class SystemControllerTest extends AbstractIntegrationTest {
@@ -56,4 +67,63 @@ public class SystemControllerTest extends AbstractIntegrationTest {
                 .statusCode(SC_OK)
                 .body("size()", is(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void push() {
+        given()
+                .auth()
+                .preemptive()
+                .basic("sp-portal", "secret")
+                .when()
+                .get("manage/api/internal/push")
+                .then()
+                .statusCode(SC_OK)
+                .body("status", is(200));
+    }
+
+    @Test
+    public void pushPrunesPushes() {
+        Instant now = Instant.now();
+        mongoTemplate().insert(new Push("full", now.minus(Duration.ofDays(1)), "system", true, null));
+        IntStream.range(0, 120).forEach(i -> mongoTemplate().insert(new Push(UUID.randomUUID().toString(),
+                now.minus(Duration.ofMinutes(i + 1)), "system", false, null)));
+
+        this.push();
+
+        //The last full push is one of the newest pushes
+        assertEquals(100L, mongoTemplate().count(new Query(), Push.class));
+        assertFalse(mongoTemplate().exists(Query.query(Criteria.where("_id").is("full")), Push.class));
+    }
+
+    @Test
+    public void pushAsync() {
+        String id = given()
+                .auth()
+                .preemptive()
+                .basic("sp-portal", "secret")
+                .when()
+                .get("manage/api/internal/push?async=true")
+                .then()
+                .statusCode(SC_ACCEPTED)
+                .extract().path("id");
+
+        await().until(() -> "FINISHED".equals(given()
+                .auth()
+                .preemptive()
+                .basic("sp-portal", "secret")
+                .when()
+                .get("manage/api/internal/push/" + id)
+                .then()
+                .statusCode(SC_OK)
+                .extract().path("status")));
+
+        given()
+                .auth()
+                .preemptive()
+                .basic("sp-portal", "secret")
+                .when()
+                .get("manage/api/internal/push/nope")
+                .then()
+                .statusCode(SC_NOT_FOUND);
+    }
+}
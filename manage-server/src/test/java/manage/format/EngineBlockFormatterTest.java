@@ -1,12 +1,15 @@
 package manage.format;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import manage.TestUtils;
+import manage.model.EntityType;
 import manage.model.MetaData;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
@@ -69,6 +72,35 @@ public class EngineBlockFormatterTest implements TestUtils {
         assertEquals(Stream.of("allow_all_entities", "metadata", "allowed_connections", "arp_attributes", "type").collect(Collectors.toSet()), rp.keySet());
     }
 
+    @Test
+    public void byteIdenticalToLegacyFormatter() throws Exception {
+        LegacyEngineBlockFormatter legacy = new LegacyEngineBlockFormatter();
+        List<MetaData> metaDataList = objectMapper.readValue(readFile("json/meta_data_seed.json"),
+                new TypeReference<>() {
+                });
+        metaDataList.add(objectMapper.readValue(readFile("json/meta_data_detail.json"), MetaData.class));
+        for (MetaData metaData : metaDataList) {
+            //The formatters may change the source, so both get their own copy
+            MetaData copy = objectMapper.readValue(objectMapper.writeValueAsString(metaData), MetaData.class);
+            switch (EntityType.fromType(metaData.getType())) {
+                case IDP:
+                    assertEquals(objectMapper.writeValueAsString(legacy.parseIdentityProvider(copy)),
+                            objectMapper.writeValueAsString(subject.parseIdentityProvider(metaData)));
+                    break;
+                case RP:
+                    assertEquals(objectMapper.writeValueAsString(legacy.parseOidcClient(copy)),
+                            objectMapper.writeValueAsString(subject.parseOidcClient(metaData)));
+                    break;
+                case SP:
+                    assertEquals(objectMapper.writeValueAsString(legacy.parseServiceProvider(copy)),
+                            objectMapper.writeValueAsString(subject.parseServiceProvider(metaData)));
+                    break;
+                default:
+                    //Not part of the push
+            }
+        }
+    }
+
     private void assertAttribute(String path, String value, Map<String, Object> result) {
         String[] split = path.split(":");
         if (split.length == 1) {
@@ -0,0 +1,29 @@
+package manage.format;
+
+import manage.TestUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class NdJsonWriterTest implements TestUtils {
+
+    @Test
+    public void writeAll() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (NdJsonWriter ndJsonWriter = new NdJsonWriter(objectMapper, outputStream)) {
+            ndJsonWriter.writeAll(List.of(Map.of("id", 1), Map.of("id", 2)).iterator());
+        }
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", outputStream.toString());
+    }
+
+    @Test
+    public void writeEmpty() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new NdJsonWriter(objectMapper, outputStream).close();
+        assertEquals("", outputStream.toString());
+    }
+}
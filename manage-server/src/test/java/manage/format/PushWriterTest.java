@@ -0,0 +1,57 @@
+package manage.format;
+
+import manage.TestUtils;
+import manage.model.MetaData;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("unchecked")
+public class PushWriterTest implements TestUtils {
+
+    private final EngineBlockFormatter formatter = new EngineBlockFormatter();
+
+    @Test
+    public void write() throws Exception {
+        MetaData metaData = objectMapper.readValue(readFile("json/meta_data_detail.json"), MetaData.class);
+        Map<String, Object> connection = formatter.parseServiceProvider(metaData);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (PushWriter pushWriter = new PushWriter(objectMapper, outputStream)) {
+            pushWriter.write("1", objectMapper.writeValueAsString(connection));
+            pushWriter.write("2", objectMapper.writeValueAsString(connection));
+            pushWriter.finish();
+        }
+        Map<String, Map<String, Object>> result = objectMapper.readValue(outputStream.toByteArray(), Map.class);
+
+        Map<String, Object> connections = new HashMap<>();
+        connections.put("1", connection);
+        connections.put("2", connection);
+        Map<String, Object> expected = objectMapper.readValue(
+                objectMapper.writeValueAsBytes(Map.of("connections", connections)), Map.class);
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void writeEmpty() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (PushWriter pushWriter = new PushWriter(objectMapper, outputStream)) {
+            pushWriter.finish();
+        }
+        assertEquals("{\"connections\":{}}", outputStream.toString());
+    }
+
+    @Test
+    public void writeUnfinished() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (PushWriter pushWriter = new PushWriter(objectMapper, outputStream)) {
+            pushWriter.write("1", "{}");
+        }
+        //A failed push is not terminated, so it can not be read as a complete push
+        assertEquals("{\"connections\":{\"1\":{}", outputStream.toString());
+    }
+}
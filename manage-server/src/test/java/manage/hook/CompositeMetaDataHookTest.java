@@ -0,0 +1,112 @@
+package manage.hook;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import manage.model.EntityType;
+import manage.model.HookTiming;
+import manage.model.MetaData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompositeMetaDataHookTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    void chainPerEntityType() {
+        CompositeMetaDataHook subject = new CompositeMetaDataHook(List.of(
+                new RecordingHook("all", null),
+                new RecordingHook("rp", EntityType.RP),
+                new RecordingHook("sp", EntityType.SP)));
+
+        subject.preValidate(metaData(EntityType.SP));
+        assertEquals(List.of("all", "sp"), calls);
+
+        calls.clear();
+        subject.prePut(metaData(EntityType.RP), metaData(EntityType.RP));
+        assertEquals(List.of("all", "rp"), calls);
+    }
+
+    @Test
+    void dataDependentHook() {
+        CompositeMetaDataHook subject = new CompositeMetaDataHook(List.of(new RecordingHook("data", null) {
+            @Override
+            public boolean appliesForMetaData(MetaData metaData) {
+                return metaData.getData().containsKey("applies");
+            }
+
+            @Override
+            public boolean appliesForEntityType(EntityType entityType) {
+                return true;
+            }
+        }));
+
+        subject.prePost(metaData(EntityType.SP));
+        assertEquals(List.of(), calls);
+
+        MetaData metaData = metaData(EntityType.SP);
+        metaData.getData().put("applies", true);
+        subject.prePost(metaData);
+        assertEquals(List.of("data"), calls);
+    }
+
+    @Test
+    void timings() {
+        CompositeMetaDataHook subject = new CompositeMetaDataHook(List.of(new RecordingHook("sp", EntityType.SP)),
+                new SimpleMeterRegistry());
+        subject.preValidate(metaData(EntityType.SP));
+        subject.preValidate(metaData(EntityType.SP));
+        subject.postGet(metaData(EntityType.IDP));
+
+        List<HookTiming> timings = subject.timings();
+        assertEquals(1, timings.size());
+        HookTiming timing = timings.get(0);
+        assertEquals("preValidate", timing.getPhase());
+        assertEquals(EntityType.SP.getType(), timing.getType());
+        assertEquals(2L, timing.getCount());
+    }
+
+    private MetaData metaData(EntityType entityType) {
+        Map<String, Object> data = new HashMap<>();
+        return new MetaData(entityType.getType(), data);
+    }
+
+    private class RecordingHook extends MetaDataHookAdapter {
+
+        private final String name;
+        private final EntityType entityType;
+
+        private RecordingHook(String name, EntityType entityType) {
+            this.name = name;
+            this.entityType = entityType;
+        }
+
+        @Override
+        public boolean appliesForMetaData(MetaData metaData) {
+            return entityType == null || entityType.getType().equals(metaData.getType());
+        }
+
+        @Override
+        public MetaData prePut(MetaData previous, MetaData newMetaData) {
+            calls.add(name);
+            return newMetaData;
+        }
+
+        @Override
+        public MetaData prePost(MetaData metaData) {
+            calls.add(name);
+            return metaData;
+        }
+
+        @Override
+        public MetaData preValidate(MetaData metaData) {
+            calls.add(name);
+            return metaData;
+        }
+    }
+}
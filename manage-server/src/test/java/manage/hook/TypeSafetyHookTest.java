@@ -39,6 +39,24 @@ public class TypeSafetyHookTest implements TestUtils {
         assertEquals(1, metaDataFieldValues.get("AssertionConsumerService:0:index"));
     }
 
+    @Test
+    public void preValidateMergedPatterns() {
+        for (int i = 0; i < 2; i++) {
+            Map<String, Object> metaDataFieldValues = new HashMap<>();
+            metaDataFieldValues.put("contacts:1:isSirtfiSecurityContact", "1");
+            metaDataFieldValues.put("shibmd:scope:0:regexp", "0");
+            metaDataFieldValues.put("coin:hidden", "1");
+            metaDataFieldValues.put("contacts:1:emailAddress", "1");
+
+            metaDataFieldValues = subject.preValidate(metaData("saml20_idp", metaDataFieldValues)).metaDataFields();
+
+            assertEquals(true, metaDataFieldValues.get("contacts:1:isSirtfiSecurityContact"));
+            assertEquals(false, metaDataFieldValues.get("shibmd:scope:0:regexp"));
+            assertEquals(true, metaDataFieldValues.get("coin:hidden"));
+            assertEquals("1", metaDataFieldValues.get("contacts:1:emailAddress"));
+        }
+    }
+
     private MetaData metaData(String type, Map<String, Object> metaDataFieldValues) {
         Map<String, Object> data = new HashMap<>();
         Map<String, Object> metaDataFields = new HashMap<>();
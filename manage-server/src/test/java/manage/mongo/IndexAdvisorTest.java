@@ -0,0 +1,63 @@
+package manage.mongo;
+
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.IndexAdvice;
+import org.bson.BsonDocument;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexAdvisorTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private IndexAdvisor indexAdvisor;
+
+    @Test
+    public void advise() {
+        indexAdvisor.reset();
+        metaDataRepository.relyingParties("https://resource-server");
+        Query query = new Query(Criteria.where("data.metaDataFields.description:en").is("Nope"));
+        metaDataRepository.getMongoTemplate().find(query, Map.class, EntityType.SP.getType());
+        metaDataRepository.getMongoTemplate().find(query, Map.class, EntityType.SP.getType());
+
+        List<IndexAdvice> advice = indexAdvisor.advise();
+        assertEquals(1, advice.size());
+        IndexAdvice indexAdvice = advice.get(0);
+        assertEquals(EntityType.SP.getType(), indexAdvice.getCollection());
+        assertEquals("{\"data.metaDataFields.description:en\": 1}", indexAdvice.getFilter());
+        assertEquals(2L, indexAdvice.getCount());
+    }
+
+    @Test
+    public void covered() {
+        Set<String> leadingKeys = Set.of("data.entityid", "data.state");
+        assertTrue(IndexAdvisor.covered(shape("{\"data.state\": \"a\", \"data.notes\": \"x\"}"), leadingKeys));
+        assertTrue(IndexAdvisor.covered(shape("{\"$or\": [{\"data.state\": \"a\"}, {\"data.entityid\": \"b\"}]}"),
+                leadingKeys));
+        assertFalse(IndexAdvisor.covered(shape("{\"$or\": [{\"data.state\": \"a\"}, {\"data.notes\": \"b\"}]}"),
+                leadingKeys));
+        assertTrue(IndexAdvisor.covered(shape("{\"$and\": [{\"data.notes\": \"a\"}, {\"data.state\": \"b\"}]}"),
+                leadingKeys));
+        assertFalse(IndexAdvisor.covered(shape("{\"data.state\": {\"$ne\": \"a\"}}"), leadingKeys));
+        assertTrue(IndexAdvisor.covered(shape("{\"$text\": {\"$search\": \"a\"}}"), leadingKeys));
+    }
+
+    @Test
+    public void shape() {
+        assertEquals(shape("{\"a\": 1, \"b\": {\"$in\": [1, 2]}}"), shape("{\"b\": {\"$in\": [3]}, \"a\": \"x\"}"));
+    }
+
+    private static BsonDocument shape(String json) {
+        return IndexAdvisor.shape(BsonDocument.parse(json));
+    }
+}
@@ -0,0 +1,84 @@
+package manage.mongo;
+
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.IndexDrift;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static manage.mongo.MongoChangelog.REVISION_POSTFIX;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexReconcilerTest extends AbstractIntegrationTest {
+
+    private static final String INDEX_NAME = "field_entityid";
+
+    @Autowired
+    private IndexReconciler indexReconciler;
+
+    @After
+    public void after() {
+        this.dropIndexes("data.entityid_revision");
+        indexReconciler.reconcile();
+    }
+
+    @Test
+    public void reconcile() {
+        this.dropIndexes(INDEX_NAME);
+
+        List<IndexDrift> drift = indexReconciler.drift();
+        assertEquals(2, drift.size());
+        assertTrue(drift.stream().allMatch(indexDrift -> indexDrift.getStatus().equals(IndexDrift.Status.MISSING)));
+
+        List<IndexDrift> created = indexReconciler.reconcile();
+        assertEquals(List.of(EntityType.STT.getType(), EntityType.STT.getType().concat(REVISION_POSTFIX)),
+                created.stream().map(IndexDrift::getCollection).collect(toList()));
+        assertTrue(created.stream().allMatch(indexDrift -> indexDrift.getStatus().equals(IndexDrift.Status.CREATED)));
+
+        IndexInfo indexInfo = this.indexInfo(EntityType.STT.getType());
+        assertEquals("data.entityid", indexInfo.getIndexFields().get(0).getKey());
+        assertFalse(indexInfo.isUnique());
+        assertTrue(indexReconciler.reconcile().isEmpty());
+        assertTrue(indexReconciler.drift().isEmpty());
+    }
+
+    @Test
+    public void conflict() {
+        String revisionCollection = EntityType.STT.getType().concat(REVISION_POSTFIX);
+        this.dropIndexes(INDEX_NAME);
+        metaDataRepository.getMongoTemplate().indexOps(revisionCollection)
+                .ensureIndex(new Index("data.entityid", Sort.Direction.ASC).named("data.entityid_revision").unique());
+
+        List<IndexDrift> drift = indexReconciler.reconcile();
+        assertEquals(2, drift.size());
+        assertEquals(IndexDrift.Status.CREATED, drift.get(0).getStatus());
+        assertEquals(revisionCollection, drift.get(1).getCollection());
+        assertEquals(IndexDrift.Status.CONFLICT, drift.get(1).getStatus());
+    }
+
+    private void dropIndexes(String... names) {
+        List.of(EntityType.STT.getType(), EntityType.STT.getType().concat(REVISION_POSTFIX)).forEach(collection -> {
+            IndexOperations indexOperations = metaDataRepository.getMongoTemplate().indexOps(collection);
+            indexOperations.getIndexInfo().stream()
+                    .filter(indexInfo -> List.of(names).contains(indexInfo.getName()))
+                    .forEach(indexInfo -> indexOperations.dropIndex(indexInfo.getName()));
+        });
+    }
+
+    private IndexInfo indexInfo(String collection) {
+        return metaDataRepository.getMongoTemplate().indexOps(collection).getIndexInfo().stream()
+                .filter(indexInfo -> indexInfo.getName().equals(INDEX_NAME))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+}
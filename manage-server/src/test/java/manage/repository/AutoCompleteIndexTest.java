@@ -0,0 +1,72 @@
+package manage.repository;
+
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AutoCompleteIndexTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private AutoCompleteIndex autoCompleteIndex;
+
+    @Test
+    public void ranking() {
+        //The prefix match of the name of SP 8 ranks higher than the substring match of the name of SP 11
+        assertEquals(List.of("8", "11"), ids(autoCompleteIndex.search(EntityType.SP.getType(), "oidc", 16)));
+        assertEquals(List.of("3", "5"), ids(autoCompleteIndex.search(EntityType.SP.getType(), "MOCK", 16)));
+        assertEquals(List.of("5"), ids(autoCompleteIndex.search(EntityType.SP.getType(), "mock default", 16)));
+    }
+
+    @Test
+    public void limit() {
+        assertEquals(2, autoCompleteIndex.search(EntityType.SP.getType(), "o", 2).size());
+        assertEquals(7, autoCompleteIndex.search(EntityType.SP.getType(), "*", 2).size());
+    }
+
+    @Test
+    public void updates() {
+        MetaData metaData = metaDataRepository.findById("1", EntityType.SP.getType());
+        metaData.metaDataFields().put("keywords:en", "trigram");
+        metaDataRepository.update(metaData);
+        assertEquals(List.of("1"), ids(autoCompleteIndex.search(EntityType.SP.getType(), "trigram", 16)));
+
+        metaDataRepository.remove(metaData);
+        assertTrue(autoCompleteIndex.search(EntityType.SP.getType(), "trigram", 16).isEmpty());
+
+        metaDataRepository.save(metaData);
+        assertEquals(List.of("1"), ids(autoCompleteIndex.search(EntityType.SP.getType(), "trigram", 16)));
+
+        mongoTemplate().remove(new Query(Criteria.where("data.entityid").is("Duis ad do")), EntityType.SP.getType());
+        assertTrue(autoCompleteIndex.search(EntityType.SP.getType(), "trigram", 16).isEmpty());
+    }
+
+    @Test
+    public void reload() {
+        String type = EntityType.SP.getType();
+        assertTrue(autoCompleteIndex.search(type, "elsewhere", 16).isEmpty());
+
+        //Written without a mapping event, like an other node or an import does
+        mongoTemplate().getCollection(type).insertOne(new Document("_id", "99")
+                .append("data", new Document("entityid", "https://elsewhere")));
+        assertTrue(autoCompleteIndex.search(type, "elsewhere", 16).isEmpty());
+
+        autoCompleteIndex.reload();
+        assertEquals(List.of("99"), ids(autoCompleteIndex.search(type, "elsewhere", 16)));
+    }
+
+    private List<Object> ids(List<Map> results) {
+        return results.stream().map(result -> result.get("_id")).collect(toList());
+    }
+}
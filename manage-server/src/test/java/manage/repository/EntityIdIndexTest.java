@@ -0,0 +1,49 @@
+package manage.repository;
+
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntityIdIndexTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private EntityIdIndex entityIdIndex;
+
+    @Test
+    public void lookup() {
+        String type = EntityType.SP.getType();
+        assertTrue(entityIdIndex.existsById(type, "3"));
+        assertFalse(entityIdIndex.existsById(type, "99"));
+        assertFalse(entityIdIndex.existsById(EntityType.IDP.getType(), "3"));
+    }
+
+    @Test
+    public void updates() {
+        String type = EntityType.SP.getType();
+        MetaData metaData = metaDataRepository.findById("3", type);
+        assertTrue(entityIdIndex.existsById(type, "3"));
+
+        metaDataRepository.remove(metaData);
+        assertFalse(entityIdIndex.existsById(type, "3"));
+    }
+
+    @Test
+    public void reload() {
+        String type = EntityType.SP.getType();
+        assertFalse(entityIdIndex.existsById(type, "99"));
+
+        //Written without a mapping event, like an other node or an import does
+        mongoTemplate().getCollection(type).insertOne(new Document("_id", "99")
+                .append("data", new Document("entityid", "https://elsewhere")));
+        assertFalse(entityIdIndex.existsById(type, "99"));
+
+        entityIdIndex.reload();
+        assertTrue(entityIdIndex.existsById(type, "99"));
+    }
+}
@@ -1,16 +1,99 @@
 package manage.repository;
 
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import org.bson.Document;
 import org.junit.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetaDataRepositoryTest extends AbstractIntegrationTest {
 
-public class MetaDataRepositoryTest {
+    private static final String SP = EntityType.SP.getType();
+
+    @Test
+    public void propagateReferenceRetriesConcurrentChanges() {
+        List<MetaData> references = this.references("http://mock-idp");
+        assertEquals(2, references.size());
 
-    private MetaDataRepository subject = new MetaDataRepository(null, "en,nl,pt");
+        //Changed between the read and the bulk write
+        this.concurrentChange("2", new Update().set("data.notes", "Concurrent"));
+
+        long updated = metaDataRepository.propagateReference(SP, "allowedEntities", "http://mock-idp",
+                "https://new-idp", "Renamed", references);
+
+        assertEquals(2L, updated);
+        assertEquals(0, this.references("http://mock-idp").size());
+        assertEquals(2, this.references("https://new-idp").size());
+        assertEquals("Concurrent", metaDataRepository.findById("2", SP).getData().get("notes"));
+        assertEquals(1L, this.revisions("2"));
+        assertEquals(1L, this.revisions("3"));
+    }
+
+    @Test
+    public void propagateReferenceRemovedConcurrently() {
+        List<MetaData> references = this.references("http://mock-idp");
+
+        this.concurrentChange("2", new Update().pull("data.allowedEntities", new Document("name", "http://mock-idp")));
+
+        long updated = metaDataRepository.propagateReference(SP, "allowedEntities", "http://mock-idp",
+                "https://new-idp", "Renamed", references);
+
+        assertEquals(1L, updated);
+        assertEquals(List.of("3"), this.references("https://new-idp").stream().map(MetaData::getId)
+                .collect(toList()));
+        assertEquals(0L, this.revisions("2"));
+        assertEquals(1L, this.revisions("3"));
+    }
 
     @Test
-    public void escapeSpecialChars() {
-        String result = subject.escapeSpecialChars("query (((test))) | part [test] ? {} + *");
-        assertEquals("query \\(\\(\\(test\\)\\)\\) \\| part \\[test\\] \\? \\{\\} \\+ \\*", result);
+    public void existingEntityIds() {
+        //Written without a mapping event, like an other node or an import does
+        mongoTemplate().getCollection(SP).insertOne(new Document("_id", "99")
+                .append("data", new Document("entityid", "https://elsewhere")));
+
+        assertEquals(Set.of("http://mock-sp", "https://elsewhere"), metaDataRepository.existingEntityIds(SP,
+                Arrays.asList("http://mock-sp", "https://elsewhere", "HTTP://ELSEWHERE", "http://nope", null)));
+        assertTrue(metaDataRepository.existingEntityIds(SP, List.of("HTTP://MOCK-SP")).isEmpty());
+        assertTrue(metaDataRepository.existingEntityIds(EntityType.IDP.getType(), List.of("http://mock-sp"))
+                .isEmpty());
+    }
+
+    @Test
+    public void entityWrittenElsewhere() {
+        //Loads the in-memory index before the write it does not see
+        assertEquals(List.of(), metaDataRepository.findByEntityId(SP, "https://elsewhere"));
+        assertFalse(metaDataRepository.existsById(SP, "99"));
+
+        mongoTemplate().getCollection(SP).insertOne(new Document("_id", "99")
+                .append("data", new Document("entityid", "https://elsewhere")));
+
+        assertEquals(1, metaDataRepository.findByEntityId(SP, "HTTPS://ELSEWHERE").size());
+        assertTrue(metaDataRepository.existsById(SP, "99"));
+    }
+
+    private void concurrentChange(String id, Update update) {
+        mongoTemplate().updateFirst(new Query(Criteria.where("_id").is(id)), update.inc("version", 1), SP);
+    }
+
+    private List<MetaData> references(String entityId) {
+        return mongoTemplate().find(new Query(Criteria.where("data.allowedEntities.name").is(entityId)),
+                MetaData.class, SP);
+    }
+
+    private long revisions(String parentId) {
+        return mongoTemplate().count(new Query(Criteria.where("revision.parentId").is(parentId)),
+                SP.concat("_revision"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package manage.service;
+
+import manage.control.DatabaseController;
+import manage.model.PushJob;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PushJobServiceTest {
+
+    private final DatabaseController databaseController = mock(DatabaseController.class);
+
+    private final PushJobService pushJobService = new PushJobService(databaseController);
+
+    @After
+    public void after() {
+        pushJobService.shutdown();
+    }
+
+    @Test
+    public void coalesce() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(databaseController.doPush(anyBoolean(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new ResponseEntity<Map>(Map.of("status", 200), HttpStatus.OK);
+        });
+
+        PushJob running = pushJobService.submit(false, false, "first");
+        started.await();
+
+        PushJob pending = pushJobService.submit(true, false, "second");
+        PushJob coalesced = pushJobService.submit(false, false, "third");
+        assertNotSame(running, pending);
+        assertSame(pending, coalesced);
+        assertEquals(1, pending.getCoalesced());
+        //The full push request wins over the delta push request
+        assertFalse(pending.isDelta());
+        assertEquals(PushJob.Status.PENDING, pending.getStatus());
+
+        release.countDown();
+        assertEquals(Map.of("status", 200), pending.getFuture().join());
+        assertEquals(PushJob.Status.FINISHED, running.getStatus());
+        assertEquals(PushJob.Status.FINISHED, pending.getStatus());
+        assertSame(pending, pushJobService.findById(pending.getId()).get());
+
+        verify(databaseController, times(2)).doPush(eq(false), any());
+        verify(databaseController, never()).doDeltaPush(any());
+    }
+
+    @Test
+    public void failure() {
+        when(databaseController.doDeltaPush(any())).thenThrow(new IllegalStateException("EngineBlock is down"));
+
+        try {
+            pushJobService.submitAndWait(true, false, "test");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("EngineBlock is down", e.getMessage());
+        }
+        PushJob job = pushJobService.submit(true, false, "test");
+        job.getFuture().exceptionally(e -> null).join();
+        assertEquals(PushJob.Status.FAILED, job.getStatus());
+        assertEquals("EngineBlock is down", job.getError());
+    }
+}
@@ -0,0 +1,88 @@
+package manage.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PushSnapshotCacheTest {
+
+    private final PushSnapshotCache pushSnapshotCache = new PushSnapshotCache();
+
+    @Test
+    public void get() {
+        pushSnapshotCache.put("1", 1L, "{}");
+
+        assertEquals("{}", pushSnapshotCache.get("1", 1L).get().getConnection());
+        assertFalse(pushSnapshotCache.get("1", 2L).isPresent());
+        assertFalse(pushSnapshotCache.get("1", null).isPresent());
+        assertFalse(pushSnapshotCache.get("2", 1L).isPresent());
+    }
+
+    @Test
+    public void excludedFromPush() {
+        pushSnapshotCache.put("1", 1L, null);
+
+        assertTrue(pushSnapshotCache.get("1", 1L).get().isExcludedFromPush());
+    }
+
+    @Test
+    public void digest() {
+        PushSnapshotCache.Snapshot snapshot = pushSnapshotCache.put("1", 1L, "{}");
+
+        assertArrayEquals(snapshot.getDigest(), pushSnapshotCache.put("1", 2L, "{}").getDigest());
+        assertFalse(Arrays.equals(snapshot.getDigest(), pushSnapshotCache.put("2", 1L, "{}").getDigest()));
+        assertFalse(Arrays.equals(snapshot.getDigest(), pushSnapshotCache.put("1", 1L, "{ }").getDigest()));
+        assertNull(pushSnapshotCache.put("1", 1L, null).getDigest());
+    }
+
+    @Test
+    public void unversioned() {
+        pushSnapshotCache.put("1", null, "{}");
+
+        assertEquals(0, pushSnapshotCache.size());
+    }
+
+    @Test
+    public void invalidate() {
+        pushSnapshotCache.put("1", 1L, "{}");
+        pushSnapshotCache.put("2", 1L, "{}");
+        pushSnapshotCache.put("3", 1L, "{}");
+
+        pushSnapshotCache.invalidate("1");
+        assertFalse(pushSnapshotCache.get("1", 1L).isPresent());
+
+        pushSnapshotCache.retainAll(Set.of("2"));
+        assertEquals(1, pushSnapshotCache.size());
+        assertTrue(pushSnapshotCache.get("2", 1L).isPresent());
+
+        pushSnapshotCache.invalidateAll();
+        assertEquals(0, pushSnapshotCache.size());
+    }
+
+    @Test
+    public void hash() {
+        PushHash expected = new PushHash();
+        expected.add(pushSnapshotCache.put("1", 1L, "{}"));
+        pushSnapshotCache.put("2", 1L, null);
+        pushSnapshotCache.put("3", 1L, "{\"changed\":false}");
+        expected.add(pushSnapshotCache.put("3", 2L, "{}"));
+        pushSnapshotCache.put("4", 1L, "{}");
+        pushSnapshotCache.invalidate("4");
+        pushSnapshotCache.put("5", 1L, "{}");
+        pushSnapshotCache.retainAll(Set.of("1", "2", "3"));
+
+        assertEquals(Optional.of(expected.value()), pushSnapshotCache.hash(3));
+        assertFalse(pushSnapshotCache.hash(4).isPresent());
+
+        pushSnapshotCache.invalidateAll();
+        assertEquals(Optional.of(new PushHash().value()), pushSnapshotCache.hash(0));
+    }
+}
@@ -0,0 +1,50 @@
+package manage.service;
+
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.PropagationJob;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReferencePropagationServiceTest extends AbstractIntegrationTest {
+
+    private static final Map<String, List<String>> ALLOWED_ENTITIES =
+            Map.of(EntityType.SP.getType(), List.of("allowedEntities"));
+
+    @Test
+    public void propagateInBackground() {
+        ReferencePropagationService subject = new ReferencePropagationService(metaDataRepository, 1);
+        PropagationJob job = subject.propagate("http://mock-idp", "https://renamed-idp", ALLOWED_ENTITIES, "Renamed");
+        assertTrue(job.isBackground());
+        assertEquals(2L, job.getReferences());
+
+        await().until(() -> job.getStatus() == PropagationJob.Status.FINISHED);
+        assertEquals(2L, job.getUpdated());
+        assertEquals(2L, this.references("https://renamed-idp"));
+        assertEquals(0L, this.references("http://mock-idp"));
+        assertEquals(job, subject.findById(job.getId()).get());
+        subject.shutdown();
+    }
+
+    @Test
+    public void propagateDeletion() {
+        ReferencePropagationService subject = new ReferencePropagationService(metaDataRepository, 10);
+        PropagationJob job = subject.propagate("http://mock-idp", null, ALLOWED_ENTITIES, "Deleted");
+        assertFalse(job.isBackground());
+        assertEquals(PropagationJob.Status.FINISHED, job.getStatus());
+        assertEquals(2L, job.getUpdated());
+        assertEquals(0L, this.references("http://mock-idp"));
+        subject.shutdown();
+    }
+
+    private long references(String entityId) {
+        return metaDataRepository.countReferences(EntityType.SP.getType(), "allowedEntities", entityId);
+    }
+}
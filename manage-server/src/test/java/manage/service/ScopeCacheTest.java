@@ -0,0 +1,29 @@
+package manage.service;
+
+import manage.AbstractIntegrationTest;
+import manage.model.Scope;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScopeCacheTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ScopeCache scopeCache;
+
+    @Test
+    public void evict() {
+        assertSame(scopeCache.scopesByName(), scopeCache.scopesByName());
+
+        Scope scope = scopeRepository.save(new Scope("cache-test", new HashMap<>(), new HashMap<>()));
+        assertTrue(scopeCache.scopesByName().containsKey("cache-test"));
+
+        scopeRepository.delete(scope);
+        assertFalse(scopeCache.scopesByName().containsKey("cache-test"));
+    }
+}
@@ -0,0 +1,81 @@
+package manage.service;
+
+import manage.AbstractIntegrationTest;
+import manage.model.EntityType;
+import manage.model.MetaData;
+import manage.model.StatsEntry;
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class StatsServiceTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private StatsService statsService;
+
+    @Test
+    public void statsAfterWrite() {
+        StatsEntry entry = this.statsEntry(statsService.stats(), EntityType.SP.getType());
+        assertEquals(7L, entry.count.longValue());
+        assertNotNull(entry.storageSize);
+        assertNotNull(entry.indexSize);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("entityid", "https://stats.test");
+        metaDataRepository.save(new MetaData(EntityType.SP.getType(), data));
+
+        assertEquals(8L, this.statsEntry(statsService.stats(), EntityType.SP.getType()).count.longValue());
+    }
+
+    @Test
+    public void timeToLive() {
+        MutableClock clock = new MutableClock();
+        StatsService subject = new StatsService(mongoTemplate(), Duration.ofMinutes(5), clock);
+        assertEquals(7L, this.statsEntry(subject.stats(), EntityType.SP.getType()).count.longValue());
+
+        //Inserted without a mapping event
+        mongoTemplate().getCollection(EntityType.SP.getType()).insertOne(new Document("data",
+                new Document("entityid", "https://stats.test")));
+        assertEquals(7L, this.statsEntry(subject.stats(), EntityType.SP.getType()).count.longValue());
+
+        clock.instant = clock.instant.plus(Duration.ofMinutes(6));
+        assertEquals(8L, this.statsEntry(subject.stats(), EntityType.SP.getType()).count.longValue());
+    }
+
+    private StatsEntry statsEntry(List<StatsEntry> stats, String name) {
+        return stats.stream().filter(entry -> entry.name.equals(name)).findFirst()
+                .orElseThrow(IllegalArgumentException::new);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.now();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
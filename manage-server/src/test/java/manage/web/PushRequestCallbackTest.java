@@ -0,0 +1,98 @@
+package manage.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PushRequestCallbackTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpServer server;
+    private String url;
+
+    private String contentEncoding;
+    private long receivedSize;
+    private Map<String, Object> receivedBody;
+
+    @Before
+    public void before() throws IOException {
+        //Stub receiver that decodes the body like EngineBlock does
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/connections", exchange -> {
+            contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            byte[] bytes = IOUtils.toByteArray(exchange.getRequestBody());
+            receivedSize = bytes.length;
+            InputStream body = new ByteArrayInputStream(bytes);
+            receivedBody = objectMapper.readValue("gzip".equals(contentEncoding) ? new GZIPInputStream(body) : body, Map.class);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        url = String.format("http://localhost:%s/api/connections", server.getAddress().getPort());
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void gzip() {
+        PushRequestCallback requestCallback = push(true);
+
+        assertEquals("gzip", contentEncoding);
+        assertEquals(body(), receivedBody);
+        assertEquals(receivedSize, requestCallback.getCompressedSize());
+        assertTrue(requestCallback.getCompressedSize() < requestCallback.getRawSize());
+    }
+
+    @Test
+    public void plain() {
+        PushRequestCallback requestCallback = push(false);
+
+        assertNull(contentEncoding);
+        assertEquals(body(), receivedBody);
+        assertEquals(receivedSize, requestCallback.getRawSize());
+        assertEquals(requestCallback.getRawSize(), requestCallback.getCompressedSize());
+    }
+
+    private PushRequestCallback push(boolean gzip) {
+        HttpComponentsClientHttpRequestFactory requestFactory =
+                new HttpComponentsClientHttpRequestFactory(HttpClientBuilder.create().build());
+        requestFactory.setBufferRequestBody(false);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        PushRequestCallback requestCallback =
+                new PushRequestCallback(gzip, outputStream -> objectMapper.writeValue(outputStream, body()));
+        restTemplate.execute(url, HttpMethod.POST, requestCallback, restTemplate.responseEntityExtractor(Void.class));
+        return requestCallback;
+    }
+
+    private Map<String, Object> body() {
+        Map<String, Object> connections = new HashMap<>();
+        IntStream.range(0, 100).forEach(i -> connections.put(String.valueOf(i),
+                Map.of("name", "https://sp" + i + ".example.org", "type", "saml20-sp")));
+        return Map.of("connections", connections);
+    }
+}